@@ -0,0 +1,83 @@
+package ghost;
+
+import java.util.Arrays;
+
+/**
+ * The letters a dictionary actually uses, numbered densely in code point
+ * order: 26 letters for an English word list, 33 for Russian, and so on.
+ * Letters are Unicode code points, so characters outside the Basic
+ * Multilingual Plane are single letters too. index(c) is two array lookups
+ * (a page of 256 code points, then the letter within it), so a trie can keep
+ * a node's children as a bitmap over the alphabet instead of a list or hash
+ * keyed by Character. An Alphabet is immutable.
+ */
+public final class Alphabet {
+
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGES = (Character.MAX_CODE_POINT >>> PAGE_SHIFT) + 1;
+
+    private final int[] letters; // in code point order
+    private final int[][] pages; // pages[c >>> 8][c & 0xff] is 1 + the index of c, or 0; null for unused pages
+
+    private Alphabet(int[] letters) {
+        this.letters = letters;
+        pages = new int[PAGES][];
+        for (int i = 0; i < letters.length; i++) {
+            int[] page = pages[letters[i] >>> PAGE_SHIFT];
+            if (page == null) {
+                page = pages[letters[i] >>> PAGE_SHIFT] = new int[1 << PAGE_SHIFT];
+            }
+            page[letters[i] & ((1 << PAGE_SHIFT) - 1)] = i + 1;
+        }
+    }
+
+    // the alphabet of labels[from..to)
+    static Alphabet of(int[] labels, int from, int to) {
+        int[] sorted = Arrays.copyOfRange(labels, from, to);
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return new Alphabet(Arrays.copyOf(sorted, size));
+    }
+
+    public int size() {
+        return letters.length;
+    }
+
+    public int letter(int i) {
+        return letters[i];
+    }
+
+    // returns the index of the code point c, or -1 if no word uses it
+    public int index(int c) {
+        if (c < 0 || c > Character.MAX_CODE_POINT) {
+            return -1;
+        }
+        int[] page = pages[c >>> PAGE_SHIFT];
+        return (page == null) ? -1 : page[c & ((1 << PAGE_SHIFT) - 1)] - 1;
+    }
+
+    public boolean contains(int c) {
+        return index(c) >= 0;
+    }
+
+    // approximate bytes of heap held by the letter array and the index pages
+    long heapBytes() {
+        long bytes = 2 * 16 + 4L * letters.length + 4L * PAGES;
+        for (int[] page : pages) {
+            if (page != null) {
+                bytes += 16 + (4 << PAGE_SHIFT);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return new String(letters, 0, letters.length);
+    }
+}
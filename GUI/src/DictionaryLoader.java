@@ -0,0 +1,178 @@
+package ghost;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams word lists into a Trie. Plain files are memory-mapped, gzip files
+ * (*.gz) and any other ReadableByteChannel are read through a large reusable
+ * buffer. Bytes are decoded as UTF-8 straight into a reusable buffer of code
+ * points and inserted from there, so no String is created per word. One word
+ * per line; blank lines are skipped. Every code point is one letter, those
+ * outside the Basic Multilingual Plane included.
+ *
+ * A loader keeps running totals over everything it has loaded, which
+ * callers can report as load throughput. The byte count is kept up to date
+ * while loading, so another thread may poll bytes() for progress.
+ */
+public class DictionaryLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAP_WINDOW = 1 << 30;
+
+    private long words;
+    private volatile long bytes; // read by other threads to show progress
+    private long nanos;
+
+    private int[] line = new int[64]; // code points
+    private int length;
+    private int codePoint; // UTF-8 sequence being decoded
+    private int pending; // continuation bytes still expected for codePoint
+
+    // receives each word loaded, held in code points [start, end) of a buffer that is reused for the next word
+    interface Sink {
+        void add(int[] word, int start, int end);
+    }
+
+    public void load(Trie trie, String filename) throws IOException {
+        load(sink(trie), filename);
+    }
+
+    // loads words from any source of UTF-8 text, e.g. a socket or a decompressing stream
+    public void load(Trie trie, ReadableByteChannel channel) throws IOException {
+        load(sink(trie), channel);
+    }
+
+    private static Sink sink(final Trie trie) {
+        return new Sink() {
+            @Override
+            public void add(int[] word, int start, int end) {
+                trie.insertWord(word, start, end);
+            }
+        };
+    }
+
+    void load(Sink sink, String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (filename.endsWith(".gz")) {
+            InputStream in = new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE);
+            try {
+                load(sink, Channels.newChannel(in));
+            } finally {
+                in.close();
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+                int end = window.capacity();
+                for (int limit = 0; limit < end;) { // a chunk at a time, to report progress
+                    int read = Math.min(BUFFER_SIZE, end - limit);
+                    limit += read;
+                    window.limit(limit);
+                    decode(sink, window);
+                    bytes += read;
+                }
+            }
+            endLine(sink);
+        } finally {
+            channel.close();
+        }
+        nanos += System.nanoTime() - start;
+    }
+
+    void load(Sink sink, ReadableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        int read;
+        while ((read = channel.read(buf)) != -1) {
+            buf.flip();
+            decode(sink, buf);
+            buf.clear();
+            bytes += read;
+        }
+        endLine(sink);
+        nanos += System.nanoTime() - start;
+    }
+
+    private void decode(Sink sink, ByteBuffer buf) {
+        while (buf.hasRemaining()) {
+            int b = buf.get() & 0xff;
+            if (b < 0x80) {
+                if (b == '\n' || b == '\r') {
+                    endLine(sink);
+                } else {
+                    append(b);
+                }
+            } else if (b >= 0xc0) { // leading byte of a multi-byte sequence
+                pending = (b >= 0xf0) ? 3 : (b >= 0xe0) ? 2 : 1;
+                codePoint = b & (0x3f >> pending);
+            } else if (pending > 0) { // continuation byte
+                codePoint = codePoint << 6 | (b & 0x3f);
+                if (--pending == 0) {
+                    appendCodePoint(codePoint);
+                }
+            }
+        }
+    }
+
+    private void appendCodePoint(int cp) {
+        if (cp == 0xfeff) { // byte order mark
+            return;
+        }
+        append(cp);
+    }
+
+    private void append(int c) {
+        if (length == line.length) {
+            line = Arrays.copyOf(line, length * 2);
+        }
+        line[length++] = c;
+    }
+
+    private void endLine(Sink sink) {
+        pending = 0;
+        if (length > 0) {
+            sink.add(line, 0, length);
+            words++;
+        }
+        length = 0;
+    }
+
+    public long words() {
+        return words;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    public double wordsPerSecond() {
+        return (nanos == 0) ? 0 : words * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d words (%.1f MB) in %.1f ms, %.0f words/sec",
+                words, bytes / 1e6, nanos / 1e6, wordsPerSecond());
+    }
+}
@@ -0,0 +1,171 @@
+package ghost;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Solved tries for any number of word lists (per language, difficulty, house
+ * rules, ...), loaded on first request and shared by every caller after that.
+ *
+ * Tries are kept in least-recently-used order and weighed by their heap size;
+ * whenever the cached tries exceed the heap budget the least recently used ones
+ * are dropped (games still playing on them keep them alive until they end).
+ * Concurrent requests for a dictionary that is not cached yet wait for a single
+ * load instead of each loading it. Hits, misses, loads and evictions are
+ * counted.
+ *
+ * A dictionary is identified by its list of files, in order, so
+ * get("a.txt", "b.txt") and get("b.txt", "a.txt") are cached separately.
+ */
+public class DictionaryRegistry {
+
+    private final long heapBudget;
+
+    // guarded by this
+    private final LinkedHashMap<List<String>, SolvedTrie> cache = new LinkedHashMap<List<String>, SolvedTrie>(16, 0.75f, true);
+    private final Map<List<String>, FutureTask<SolvedTrie>> loading = new HashMap<List<String>, FutureTask<SolvedTrie>>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long loads;
+    private long evictions;
+
+    // heapBudget: bytes the cached tries may take up together. the most recently loaded trie is kept even if
+    // it alone exceeds the budget.
+    public DictionaryRegistry(long heapBudget) {
+        this.heapBudget = heapBudget;
+    }
+
+    // returns the solved trie for dictionaries, loading it (from its snapshot if possible) if it is not cached
+    public SolvedTrie get(String... dictionaries) throws IOException {
+        final List<String> key = key(dictionaries);
+        FutureTask<SolvedTrie> load;
+        boolean owner = false;
+        synchronized (this) {
+            SolvedTrie trie = cache.get(key);
+            if (trie != null) {
+                hits++;
+                return trie;
+            }
+            misses++;
+            load = loading.get(key);
+            if (load == null) {
+                load = new FutureTask<SolvedTrie>(new Callable<SolvedTrie>() {
+                    @Override
+                    public SolvedTrie call() throws IOException {
+                        return TrieSnapshot.open(key.toArray(new String[key.size()])).freeze();
+                    }
+                });
+                loading.put(key, load);
+                loads++;
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            load.run();
+        }
+        SolvedTrie trie;
+        try {
+            trie = load.get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for " + key, x);
+        } catch (ExecutionException x) {
+            if (owner) {
+                synchronized (this) {
+                    loading.remove(key);
+                }
+            }
+            if (x.getCause() instanceof IOException) {
+                throw (IOException) x.getCause();
+            }
+            throw new IllegalStateException("could not load " + key, x.getCause());
+        }
+        if (owner) {
+            synchronized (this) {
+                loading.remove(key);
+                cache.put(key, trie);
+                bytes += trie.heapBytes();
+                evict(key);
+            }
+        }
+        return trie;
+    }
+
+    // drops least recently used tries other than keep until the cache fits the budget
+    private void evict(List<String> keep) {
+        Iterator<Map.Entry<List<String>, SolvedTrie>> lru = cache.entrySet().iterator();
+        while (bytes > heapBudget && lru.hasNext()) {
+            Map.Entry<List<String>, SolvedTrie> entry = lru.next();
+            if (!entry.getKey().equals(keep)) {
+                bytes -= entry.getValue().heapBytes();
+                lru.remove();
+                evictions++;
+            }
+        }
+    }
+
+    // drops the cached trie for dictionaries, e.g. after its word lists changed; returns whether there was one
+    public synchronized boolean invalidate(String... dictionaries) {
+        SolvedTrie trie = cache.remove(key(dictionaries));
+        if (trie == null) {
+            return false;
+        }
+        bytes -= trie.heapBytes();
+        return true;
+    }
+
+    private static List<String> key(String... dictionaries) {
+        List<String> key = new ArrayList<String>(dictionaries.length);
+        for (String dictionary : dictionaries) {
+            key.add(Paths.get(dictionary).toAbsolutePath().normalize().toString());
+        }
+        return key;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    // heap bytes taken up by the cached tries
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public long heapBudget() {
+        return heapBudget;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // misses that loaded a dictionary; the others waited for a load already under way
+    public synchronized long loads() {
+        return loads;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d dictionaries, %.1f of %.1f MB, %d hits, %d misses, %d loads, %d evictions",
+                cache.size(), bytes / 1e6, heapBudget / 1e6, hits, misses, loads, evictions);
+    }
+}
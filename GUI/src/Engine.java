@@ -0,0 +1,133 @@
+package ghost;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The rules of the game and the computer's strategy over a GameTrie, with no
+ * console, Swing or other I/O attached. An Engine holds no per-game state, so
+ * one engine can drive any number of games, from any number of threads as long
+ * as each GameState is used by one thread at a time. Front-ends, servers and
+ * benchmarks all play through apply() and bestMove(), neither of which
+ * allocates. Finished games are counted in Metrics, and bestMove() records its
+ * latency there for the sampled games whose GameState is timed. An engine given
+ * a GameJournal also records every game there as it ends.
+ */
+public final class Engine {
+
+    private final GameTrie trie;
+    private final GameJournal journal; // may be null
+
+    public Engine(GameTrie trie) {
+        this(trie, null);
+    }
+
+    public Engine(GameTrie trie, GameJournal journal) {
+        this.trie = trie;
+        this.journal = journal;
+    }
+
+    public GameTrie trie() {
+        return trie;
+    }
+
+    public GameState newGame() {
+        return newGame(ThreadLocalRandom.current().nextLong());
+    }
+
+    // a game whose computer moves are all determined by seed
+    public GameState newGame(long seed) {
+        return new GameState(trie, seed);
+    }
+
+    // starts a new game in state, e.g. to play games back to back without allocating
+    public void reset(GameState state) {
+        reset(state, ThreadLocalRandom.current().nextLong());
+    }
+
+    public void reset(GameState state, long seed) {
+        state.reset(trie, seed);
+    }
+
+    /**
+     * Plays the letter c, a code point, for the player to move and returns the resulting winStatus:
+     * GameState.PLAYING if the game goes on, otherwise how the mover lost. The letter is added to the word
+     * unless it leads to no word, or to no word long enough.
+     */
+    public int apply(GameState state, int c) {
+        if (state.isOver()) {
+            throw new IllegalStateException("game is over");
+        }
+        int child = trie.child(state.node, c);
+        if (child == Trie.NONE) {
+            state.lose(GameState.INVALID_WORD);
+        } else if (!trie.hasLongWord(child)) {
+            state.lose(GameState.NO_LONG_WORD);
+        } else {
+            state.advance(child, c);
+            if (trie.isTerminal(child)) {
+                state.lose(GameState.WORD_COMPLETED);
+            }
+        }
+        if (state.winStatus != GameState.PLAYING) {
+            Metrics.get().gameEnded();
+            if (journal != null) {
+                journal.record(state, c);
+            }
+        }
+        return state.winStatus;
+    }
+
+    // the player to move first tries to choose one of its own goal nodes (a computer goal for the computer,
+    // a user goal for the user). If there aren't any, choose among paths that force maximal game length.
+    // ties are broken with the game's own random number generator.
+    public int bestMove(GameState state) {
+        if (!state.timed) {
+            return choose(state);
+        }
+        long start = System.nanoTime();
+        int move = choose(state);
+        Metrics.get().moved(System.nanoTime() - start);
+        return move;
+    }
+
+    // true if c is one of the moves bestMove() could choose for the player to move
+    public boolean isBestMove(GameState state, int c) {
+        int node = state.node;
+        int child = trie.child(node, c);
+        if (child == Trie.NONE) {
+            return false;
+        }
+        if (state.mover() == GameState.COMPUTER) {
+            if (trie.compGoalCount(node) > 0) {
+                return trie.isCompGoal(child);
+            }
+        } else {
+            if (trie.userGoalCount(node) > 0) {
+                return !trie.isCompGoal(child);
+            }
+        }
+        for (int i = trie.maxLosingPathCount(node) - 1; i >= 0; i--) {
+            if (trie.maxLosingPath(node, i) == child) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int choose(GameState state) {
+        int node = state.node;
+        if (state.mover() == GameState.COMPUTER) {
+            int numGoals = trie.compGoalCount(node);
+            if (numGoals > 0) {
+                return trie.label(trie.compGoal(node, state.nextInt(numGoals)));
+            }
+        } else {
+            int numGoals = trie.userGoalCount(node);
+            if (numGoals > 0) {
+                return trie.label(trie.userGoal(node, state.nextInt(numGoals)));
+            }
+        }
+        int numMaxLosingPaths = trie.maxLosingPathCount(node);
+        return trie.label(trie.maxLosingPath(node, state.nextInt(numMaxLosingPaths)));
+    }
+}
@@ -1,59 +1,26 @@
 package ghost;
 
 import java.util.Observable;
-import java.util.Random;
 
+// the Swing model: one game played through an Engine, observed by GhostUI
 public class Game extends Observable {
 
-    Trie.Node triePtr;
-    int winner = -1;
-    int move = 1;
-    String currMover = "User";
-    String currWord = "";
-    int winStatus = -1;
+    Engine engine; // may be shared with other games
+    GameState state;
 
-    public Game(Trie trie) {
-        triePtr = trie.root;
+    public Game(Engine engine) {
+        this.engine = engine;
+        state = engine.newGame();
     }
 
-    protected void move(char c) {
-        if (!triePtr.children.containsKey(c)) {
-            winStatus = 0;
-            winner = (currMover.equals("User")) ? 1 : 0;
-        } else if (triePtr.children.get(c).maxDepth < 4) {
-            winStatus = 1;
-            winner = (currMover.equals("User")) ? 1 : 0;
-        } else {
-            currWord += c;
-
-            triePtr = triePtr.children.get(c);
-            if (triePtr.terminal) {
-                winStatus = 2;
-                winner = (currMover.equals("User")) ? 1 : 0;
-            } else {
-                currMover = (currMover.equals("User")) ? "Computer" : "User";
-                move++;
-            }
+    // plays the user's letter and, unless that ends the game, the computer's reply,
+    // then notifies the observers once
+    protected void move(int c) {
+        if (engine.apply(state, c) == GameState.PLAYING) {
+            engine.apply(state, engine.bestMove(state));
         }
 
         setChanged();
         notifyObservers(this);
     }
-
-    // the computer first tries to choose a computer goal node. 
-    // If there aren't any, choose among paths that force maximal game length.
-    protected void compMove() {
-        Random rand = new Random();
-
-        char c;
-
-        int numGoals = triePtr.compGoals.size();
-        if (numGoals > 0) {
-            c = triePtr.compGoals.get(rand.nextInt(numGoals)).myChar;
-        } else {
-            int numMaxLosingPaths = triePtr.maxLosingPaths.size();
-            c = triePtr.maxLosingPaths.get(rand.nextInt(numMaxLosingPaths)).myChar;
-        }
-        move(c);
-    }
-}
\ No newline at end of file
+}
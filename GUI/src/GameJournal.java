@@ -0,0 +1,391 @@
+package ghost;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only binary log of finished games: every letter played, including a
+ * last letter that lost without being added to the word, then the winner and
+ * how the game ended. An Engine created with a journal records each game as
+ * it ends.
+ *
+ * Recording only copies a few bytes into an in-memory batch under a short
+ * lock; a background thread writes full batches, or whatever has built up
+ * every FLUSH_MILLIS, to the current segment file. Once a segment has grown
+ * past segmentBytes the next batch starts a new one, so old segments can be
+ * archived or deleted as whole files. If the writer falls two batches behind,
+ * recording waits for it rather than dropping games.
+ *
+ * Segments are named journal-NNNNNNNNNNNN.log in one directory and start with
+ * a 8 byte header of magic and version. A game is a little-endian record of
+ * the number of chars its letters take (int), winner and win status (a byte
+ * each), then its letters (UTF-16, so a letter outside the Basic Multilingual
+ * Plane takes two chars). A record must fit in one batch, which limits a game
+ * to MAX_CHARS chars, over half a million letters. replay() maps each segment
+ * in turn and hands every game to a Visitor, letters as code points, without
+ * creating objects per game.
+ */
+public class GameJournal implements Closeable {
+
+    static final int MAGIC = 0x474a4e4c; // "GJNL"
+    static final int VERSION = 3;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 6;
+    static final int BATCH_BYTES = 1 << 20;
+    static final int MAX_CHARS = (BATCH_BYTES - RECORD_HEADER_BYTES) / 2; // the most a record in a batch can hold
+    private static final long FLUSH_MILLIS = 100;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Thread writer;
+
+    // guarded by this. Of the two buffers one is always batch, being recorded into; the other is the spare
+    // (empty), the full batch waiting for the writer, or being written, in which case both are null
+    private ByteBuffer batch = newBatch();
+    private ByteBuffer spare = newBatch();
+    private ByteBuffer full;
+    private long fullGames; // games recorded up to the end of full
+    private long recorded; // games recorded so far
+    private long written; // games written so far
+    private long wanted; // games flush() is waiting for
+    private boolean closed;
+    private IOException failure;
+
+    // written by the writer thread only
+    private FileChannel segment;
+    private long segmentNumber;
+
+    // appends to the journal in directory, after its last segment, starting a new segment every segmentBytes
+    public GameJournal(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        segmentNumber = segments.isEmpty() ? 0 : number(segments.get(segments.size() - 1));
+        rotate();
+        writer = new Thread("Ghost journal") {
+            @Override
+            public void run() {
+                write();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the journal named by -Dghost.journal=directory, with segments of -Dghost.journal.segmentMB (64 by
+     * default), and closes it when the JVM exits. Returns null if no journal is asked for.
+     */
+    public static GameJournal fromProperties() throws IOException {
+        String directory = System.getProperty("ghost.journal");
+        if (directory == null) {
+            return null;
+        }
+        final GameJournal journal = new GameJournal(Paths.get(directory),
+                Long.getLong("ghost.journal.segmentMB", 64) << 20);
+        Runtime.getRuntime().addShutdownHook(new Thread("Ghost journal close") {
+            @Override
+            public void run() {
+                try {
+                    journal.close();
+                } catch (IOException x) {
+                    System.err.println("Could not write game journal: " + x);
+                }
+            }
+        });
+        return journal;
+    }
+
+    private static ByteBuffer newBatch() {
+        return ByteBuffer.allocate(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Records a finished game. last is the letter that ended it; it is recorded after the word unless the
+     * game ended by completing the word, in which case it is already the word's last letter. Throws
+     * IllegalArgumentException if the game takes more than MAX_CHARS chars.
+     */
+    public void record(GameState state, int last) {
+        boolean lastAdded = state.winStatus == GameState.WORD_COMPLETED;
+        int chars = lastAdded ? 0 : Character.charCount(last);
+        for (int i = 0; i < state.length; i++) {
+            chars += Character.charCount(state.word[i]);
+        }
+        if (chars > MAX_CHARS) {
+            throw new IllegalArgumentException("a game of " + chars + " chars is too long to journal");
+        }
+        int bytes = RECORD_HEADER_BYTES + 2 * chars;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            while (batch.remaining() < bytes) {
+                if (spare == null) {
+                    waitForWriter(); // the other buffer is still waiting to be written, or being written
+                    continue;
+                }
+                full = batch;
+                fullGames = recorded;
+                batch = spare;
+                spare = null;
+                notifyAll();
+            }
+            ByteBuffer b = batch;
+            b.putInt(chars).put((byte) state.winner).put((byte) state.winStatus);
+            for (int i = 0; i < state.length; i++) {
+                putLetter(b, state.word[i]);
+            }
+            if (!lastAdded) {
+                putLetter(b, last);
+            }
+            recorded++;
+        }
+    }
+
+    private static void putLetter(ByteBuffer b, int c) {
+        if (Character.isBmpCodePoint(c)) {
+            b.putChar((char) c);
+        } else {
+            b.putChar(Character.highSurrogate(c)).putChar(Character.lowSurrogate(c));
+        }
+    }
+
+    private void waitForWriter() {
+        try {
+            wait();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the journal writer", x);
+        }
+    }
+
+    // the writer thread: appends full batches as record() hands them over, and whatever has been recorded
+    // every FLUSH_MILLIS, when flush() asks for it or on close
+    private void write() {
+        while (true) {
+            ByteBuffer out;
+            long games;
+            synchronized (this) {
+                if (full == null && !closed && written >= wanted) {
+                    try {
+                        wait(FLUSH_MILLIS);
+                    } catch (InterruptedException x) {
+                        break;
+                    }
+                }
+                if (full != null) {
+                    out = full;
+                    games = fullGames;
+                    full = null;
+                } else if (batch.position() > 0) {
+                    out = batch;
+                    games = recorded;
+                    batch = spare;
+                    spare = null;
+                } else if (closed) {
+                    break;
+                } else {
+                    continue;
+                }
+            }
+            try {
+                out.flip();
+                while (out.hasRemaining()) {
+                    segment.write(out);
+                }
+                if (segment.size() >= segmentBytes) {
+                    rotate();
+                }
+            } catch (IOException x) {
+                synchronized (this) {
+                    failure = x;
+                }
+            }
+            out.clear();
+            synchronized (this) {
+                spare = out;
+                written = games; // batches are written in the order they were recorded
+                notifyAll();
+            }
+        }
+        try {
+            segment.close();
+        } catch (IOException x) {
+            synchronized (this) {
+                failure = x;
+            }
+        }
+    }
+
+    // closes the current segment, if any, and starts the next one
+    private void rotate() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segmentNumber++;
+        segment = FileChannel.open(directory.resolve(String.format("%s%012d%s", PREFIX, segmentNumber, SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+    }
+
+    // waits until every game recorded so far is written (to the OS, not necessarily to disk)
+    public synchronized void flush() throws IOException {
+        long target = recorded;
+        wanted = Math.max(wanted, target);
+        notifyAll();
+        while (written < target && failure == null) {
+            waitForWriter();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // writes what is left and stops the writer; recording afterwards fails
+    @Override
+    public void close() throws IOException {
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    public synchronized long recorded() {
+        return recorded;
+    }
+
+    // receives the games of a journal in the order they were recorded, length letters (code points) each;
+    // letters is reused for the next game
+    public interface Visitor {
+        void game(int[] letters, int length, int winner, int winStatus);
+    }
+
+    // hands every game in the journal in directory to visitor and returns how many there were
+    public static long replay(Path directory, Visitor visitor) throws IOException {
+        int[] letters = new int[64];
+        long games = 0;
+        for (Path file : segments(directory)) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            MappedByteBuffer buf;
+            try {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                channel.close(); // the mapping stays valid
+            }
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException(file + " is not a game journal");
+            }
+            while (buf.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buf.getInt();
+                int winner = buf.get();
+                int winStatus = buf.get();
+                if (length < 0 || length > MAX_CHARS) {
+                    throw new IOException(file + " is corrupt");
+                }
+                if (buf.remaining() < 2 * length) {
+                    throw new IOException(file + " is truncated");
+                }
+                if (length > letters.length) {
+                    letters = new int[Math.max(length, letters.length * 2)];
+                }
+                int count = 0;
+                for (int end = buf.position() + 2 * length; buf.position() < end;) {
+                    char c = buf.getChar();
+                    if (Character.isHighSurrogate(c) && buf.position() < end) {
+                        letters[count++] = Character.toCodePoint(c, buf.getChar());
+                    } else {
+                        letters[count++] = c;
+                    }
+                }
+                visitor.game(letters, count, winner, winStatus);
+                games++;
+            }
+        }
+        return games;
+    }
+
+    // the segments in directory, oldest first
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<Path>();
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX);
+        try {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        } finally {
+            files.close();
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Replays a journal against a dictionary: plays every recorded letter again on the dictionary's solved
+     * trie and counts the games that now end differently and the moves its solution would no longer play.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get((args.length > 0) ? args[0] : "journal");
+        String dictionary = (args.length > 1) ? args[1] : "WORD.LST.txt";
+        final Engine engine = new Engine(TrieSnapshot.open(dictionary).freeze());
+        final GameState state = engine.newGame(0);
+        final long[] counts = new long[3]; // games ending differently, moves, moves no longer best
+
+        long start = System.nanoTime();
+        long games = replay(directory, new Visitor() {
+            @Override
+            public void game(int[] letters, int length, int winner, int winStatus) {
+                engine.reset(state, 0);
+                for (int i = 0; i < length && !state.isOver(); i++) {
+                    counts[1]++;
+                    if (!engine.isBestMove(state, letters[i])) {
+                        counts[2]++;
+                    }
+                    engine.apply(state, letters[i]);
+                }
+                if (!state.isOver() || state.winner() != winner || state.winStatus() != winStatus) {
+                    counts[0]++;
+                }
+            }
+        });
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d games replayed in %.1f s, %.0f games/sec%n", games, nanos / 1e9, games * 1e9 / nanos);
+        System.out.printf("%d games end differently; %d of %d moves are not best moves%n", counts[0], counts[2], counts[1]);
+    }
+}
@@ -0,0 +1,303 @@
+package ghost;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves any number of games over TCP, one session per connection, against
+ * one solved trie shared through a DictionaryRegistry. Each session runs on
+ * its own thread: a virtual thread on runtimes that have them, otherwise a
+ * pooled platform thread. All a session keeps is its socket, two 256 byte
+ * buffers and one GameState.
+ *
+ * The protocol is one UTF-8 line per request and one per reply; the server
+ * greets with "GHOST" and the user always moves first:
+ *
+ *   NEW [seed]  starts a new game                  OK
+ *   PLAY c      plays letter c for the user        MOVE d       the computer answered d, play on
+ *                                                  LOST status  c lost the game for the user
+ *                                                  WON d status the computer's answer d lost it
+ *   WORD        the word so far                    WORD word
+ *   QUIT        ends the session                   BYE
+ *
+ * with status a GameState win status and each letter a single code point,
+ * which may take two chars; anything else is answered with
+ * "ERR message", and a line longer than MAX_LINE bytes ends the session. A
+ * session reads its next request only once its reply has been written, so a
+ * client that does not read its replies stalls only its own session. A
+ * session is closed once it has waited idleMillis for a request, or for a
+ * reply to be taken by the client: a watchdog thread closes the socket of any
+ * session whose write has been blocked that long. Once maxSessions are open,
+ * new connections wait in the listen backlog.
+ */
+public class GameServer implements Closeable {
+
+    private static final int BUFFER_SIZE = 256;
+    static final int MAX_LINE = 64;
+
+    private final DictionaryRegistry registry;
+    private final String[] dictionaries;
+    private final ServerSocket server;
+    private final Semaphore permits;
+    private final int idleMillis;
+    private final ExecutorService sessions = newSessionExecutor("Ghost session");
+    private final AtomicInteger open = new AtomicInteger();
+    private final Set<Session> live = ConcurrentHashMap.<Session>newKeySet();
+    private final Thread acceptor;
+    private final Thread watchdog;
+
+    // a connection and, while it is writing a reply, the time by which the write must be done
+    private static final class Session {
+        final Socket socket;
+        volatile long deadline;
+
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+    }
+
+    // serves games on dictionaries on the loopback interface at port (0 for any free port)
+    public GameServer(DictionaryRegistry registry, int port, int maxSessions, int idleMillis, String... dictionaries)
+            throws IOException {
+        this.registry = registry;
+        this.dictionaries = dictionaries;
+        this.permits = new Semaphore(maxSessions);
+        this.idleMillis = idleMillis;
+        registry.get(dictionaries); // fail now rather than in every session
+        server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        acceptor = new Thread("Ghost server") {
+            @Override
+            public void run() {
+                accept();
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+        watchdog = new Thread("Ghost server watchdog") {
+            @Override
+            public void run() {
+                closeStalledWriters();
+            }
+        };
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    /**
+     * Runs tasks on virtual threads if the runtime has them (Java 21 and later), otherwise on a cached pool of
+     * daemon platform threads named name.
+     */
+    static ExecutorService newSessionExecutor(final String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException x) {
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException x) {
+                return;
+            }
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException x) {
+                permits.release();
+                continue; // closed, or a connection that failed before it was accepted
+            }
+            open.incrementAndGet();
+            final Session session = new Session(socket);
+            live.add(session);
+            sessions.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serve(session);
+                    } catch (IOException x) {
+                        // the client went away, timed out or sent a line too long
+                    } finally {
+                        live.remove(session);
+                        try {
+                            socket.close();
+                        } catch (IOException x) {
+                            // nothing left to do
+                        }
+                        open.decrementAndGet();
+                        permits.release();
+                    }
+                }
+            });
+        }
+    }
+
+    // every idleMillis / 2, closes the sockets of sessions that have been writing a reply for over idleMillis;
+    // the blocked write then fails and the session ends
+    private void closeStalledWriters() {
+        long period = Math.max(1, idleMillis / 2);
+        while (!server.isClosed() || !live.isEmpty()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(period);
+            } catch (InterruptedException x) {
+                return;
+            }
+            long now = System.nanoTime();
+            for (Session session : live) {
+                long deadline = session.deadline;
+                if (deadline != 0 && now - deadline > 0) {
+                    try {
+                        session.socket.close();
+                    } catch (IOException x) {
+                        // nothing left to do
+                    }
+                }
+            }
+        }
+    }
+
+    // writes and flushes a reply, giving the client idleMillis to take it
+    private void reply(Session session, OutputStream out, String reply) throws IOException {
+        session.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleMillis) | 1; // never 0
+        out.write(reply.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        session.deadline = 0;
+    }
+
+    // returns the next line from in without its line terminator, or null at the end of the stream
+    private static String readLine(InputStream in, byte[] line) throws IOException {
+        int length = 0;
+        for (int b; (b = in.read()) != '\n';) {
+            if (b < 0) {
+                return (length == 0) ? null : new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+            if (length == line.length) {
+                throw new IOException("request longer than " + MAX_LINE + " bytes");
+            }
+            line[length++] = (byte) b;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void serve(Session session) throws IOException {
+        Socket socket = session.socket;
+        socket.setSoTimeout(idleMillis);
+        socket.setTcpNoDelay(true);
+        InputStream in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        byte[] request = new byte[MAX_LINE];
+        Engine engine = new Engine(registry.get(dictionaries));
+        GameState state = null;
+        reply(session, out, "GHOST\n");
+        try {
+            for (String line; (line = readLine(in, request)) != null;) {
+                String reply;
+                if (line.equals("QUIT")) {
+                    reply(session, out, "BYE\n");
+                    return;
+                } else if (line.equals("NEW")) {
+                    if (state == null) {
+                        state = engine.newGame();
+                    } else {
+                        engine.reset(state);
+                    }
+                    reply = "OK\n";
+                } else if (line.startsWith("NEW ")) {
+                    long seed;
+                    try {
+                        seed = Long.parseLong(line.substring(4));
+                    } catch (NumberFormatException x) {
+                        reply(session, out, "ERR bad seed\n");
+                        continue;
+                    }
+                    if (state == null) {
+                        state = engine.newGame(seed);
+                    } else {
+                        engine.reset(state, seed);
+                    }
+                    reply = "OK\n";
+                } else if (line.startsWith("PLAY ") && line.length() > 5
+                        && line.offsetByCodePoints(5, 1) == line.length()) {
+                    if (state == null || state.isOver()) {
+                        reply = "ERR no game\n";
+                    } else if (engine.apply(state, line.codePointAt(5)) != GameState.PLAYING) {
+                        reply = "LOST " + state.winStatus() + "\n";
+                    } else {
+                        int move = engine.bestMove(state);
+                        String letter = new String(Character.toChars(move));
+                        if (engine.apply(state, move) != GameState.PLAYING) {
+                            reply = "WON " + letter + " " + state.winStatus() + "\n";
+                        } else {
+                            reply = "MOVE " + letter + "\n";
+                        }
+                    }
+                } else if (line.equals("WORD")) {
+                    reply = (state == null) ? "ERR no game\n" : "WORD " + state.word() + "\n";
+                } else {
+                    reply = "ERR unknown request\n";
+                }
+                reply(session, out, reply);
+            }
+        } catch (SocketTimeoutException x) {
+            // idle too long
+        }
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    // sessions currently connected
+    public int sessions() {
+        return open.get();
+    }
+
+    // stops accepting connections; sessions already open play on until their clients leave or time out
+    @Override
+    public void close() throws IOException {
+        server.close();
+        acceptor.interrupt();
+        sessions.shutdown(); // the watchdog stops once the last session has ended
+    }
+
+    // serves games until the process is killed
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7777;
+        int maxSessions = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+        String dictionary = (args.length > 2) ? args[2] : "WORD.LST.txt";
+        Metrics.install();
+        GameServer server = new GameServer(new DictionaryRegistry(Runtime.getRuntime().maxMemory() / 2), port,
+                maxSessions, 60000, dictionary);
+        System.out.println("Serving " + dictionary + " on " + InetAddress.getLoopbackAddress() + ":" + server.port());
+        Thread.sleep(Long.MAX_VALUE);
+    }
+}
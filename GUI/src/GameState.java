@@ -0,0 +1,109 @@
+package ghost;
+
+import java.util.Arrays;
+
+/**
+ * Position of one game on a shared GameTrie: the current node, the word
+ * spelled so far and the outcome once there is one. This is all that is kept
+ * per game, so thousands of games can be played against a single trie.
+ * A GameState belongs to one game and is not itself thread-safe; moves are
+ * applied to it by an Engine.
+ *
+ * The user moves first, so it is the user's turn while the word has an even
+ * number of letters.
+ *
+ * Each game also carries its own random number generator (SplitMix64, as in
+ * java.util.SplittableRandom), which the computer uses to choose between
+ * equally good moves. Games therefore never contend on a shared Random, and
+ * a game started from a given seed always plays out the same way. Nothing on
+ * the move path allocates: the word is kept in a buffer of code points sized
+ * for any word, and a finished GameState can be reset() and reused.
+ */
+public final class GameState {
+
+    public static final int USER = 0;
+    public static final int COMPUTER = 1;
+
+    // winStatus values, i.e. how the game ended
+    public static final int PLAYING = -1;
+    public static final int INVALID_WORD = 0; // the letter leads to no word
+    public static final int NO_LONG_WORD = 1; // no word of 4 or more letters can be reached any more
+    public static final int WORD_COMPLETED = 2;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    int node;
+    int[] word = new int[32]; // code points
+    int length;
+    int winner;
+    int winStatus;
+    boolean timed; // whether bestMove latency is recorded in Metrics for this game
+    private long seed;
+
+    GameState(GameTrie trie, long seed) {
+        reset(trie, seed);
+    }
+
+    // starts a new game at the root of trie, reusing this object and its word buffer
+    void reset(GameTrie trie, long seed) {
+        node = trie.root();
+        length = 0;
+        winner = -1;
+        winStatus = PLAYING;
+        this.seed = seed;
+        timed = Metrics.isTimed(seed);
+    }
+
+    // returns a pseudo-random int in [0, bound), bound > 0
+    int nextInt(int bound) {
+        long z = (seed += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    // appends c, which leads from the current node to child
+    void advance(int child, int c) {
+        if (length == word.length) {
+            word = Arrays.copyOf(word, length * 2);
+        }
+        word[length++] = c;
+        node = child;
+    }
+
+    // ends the game with the player who just moved (or tried to) losing
+    void lose(int status) {
+        winStatus = status;
+        winner = 1 - mover();
+    }
+
+    public int node() {
+        return node;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public String word() {
+        return new String(word, 0, length);
+    }
+
+    // the player to move, or the player who lost once the game is over
+    public int mover() {
+        return (winStatus == WORD_COMPLETED) ? (length + 1) % 2 : length % 2;
+    }
+
+    public boolean isOver() {
+        return winner != -1;
+    }
+
+    public int winner() {
+        return winner;
+    }
+
+    public int winStatus() {
+        return winStatus;
+    }
+}
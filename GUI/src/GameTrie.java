@@ -0,0 +1,45 @@
+package ghost;
+
+/**
+ * What a game reads from a solved trie: the moves out of a node and the
+ * computer's and user's goals among them. Implemented by SolvedTrie, the immutable form
+ * shared by concurrent games, and by Trie itself, including lazily solved
+ * tries, which solve a node's sub-tree when its goals are first asked for.
+ */
+public interface GameTrie {
+
+    int root();
+
+    // returns the child of node labelled with the code point c, or Trie.NONE
+    int child(int node, int c);
+
+    int childCount(int node);
+
+    // returns the i-th child of node in label order
+    int nthChild(int node, int i);
+
+    // the letter, a code point, that leads to node
+    int label(int node);
+
+    boolean isTerminal(int node);
+
+    // true if a word of at least 4 letters can still be reached through node
+    boolean hasLongWord(int node);
+
+    boolean isCompGoal(int node);
+
+    int compGoalCount(int node);
+
+    // returns the i-th child of node designated a computer goal
+    int compGoal(int node, int i);
+
+    int userGoalCount(int node);
+
+    // returns the i-th child of node designated a user goal
+    int userGoal(int node, int i);
+
+    int maxLosingPathCount(int node);
+
+    // returns the i-th child of node on a path forcing maximal game length
+    int maxLosingPath(int node, int i);
+}
@@ -1,23 +1,71 @@
 package ghost;
 
 import java.awt.EventQueue;
-import javax.swing.JFrame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 
 public class Ghost implements Runnable {
 
-    Game game; // model
+    private final String[] dictionaries;
 
     public static void main(String[] args) {
-        EventQueue.invokeLater(new Ghost());
+        String[] dictionaries = (args.length > 0) ? args : new String[]{"WORD.LST.txt"};
+        Metrics.install();
+        EventQueue.invokeLater(new Ghost(dictionaries));
     }
 
-    public Ghost() {
-        Trie trie = new Trie("WORD.LST.txt");
-        game = new Game(trie);
+    public Ghost(String... dictionaries) {
+        this.dictionaries = dictionaries;
     }
 
+    // shows the window at once, then builds (or maps) the solved trie in the background, reporting progress,
+    // and starts the game when it is ready
     @Override
     public void run() {
-        JFrame ui = new GhostUI(game);
+        final GhostUI ui = new GhostUI();
+        final DictionaryLoader loader = new DictionaryLoader();
+        long total = 0;
+        for (String dictionary : dictionaries) {
+            if (dictionary.endsWith(".gz")) { // its size once decompressed is not known up front
+                total = 0;
+                break;
+            }
+            total += new File(dictionary).length();
+        }
+        final long totalBytes = total;
+
+        final Timer progress = new Timer(100, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ui.showProgress(loader.bytes(), totalBytes);
+            }
+        });
+        SwingWorker<Engine, Void> build = new SwingWorker<Engine, Void>() {
+            @Override
+            protected Engine doInBackground() throws Exception {
+                SolvedTrie trie = TrieSnapshot.open(loader, dictionaries).freeze();
+                return new Engine(Boolean.getBoolean("ghost.offheap") ? trie.offHeap() : trie, GameJournal.fromProperties());
+            }
+
+            @Override
+            protected void done() {
+                progress.stop();
+                try {
+                    ui.start(new Game(get()));
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException x) {
+                    JOptionPane.showMessageDialog(ui, "Could not load dictionary: " + x.getCause(), "Ghost", JOptionPane.ERROR_MESSAGE);
+                    ui.dispose();
+                }
+            }
+        };
+        progress.start();
+        build.execute();
     }
 }
@@ -4,8 +4,12 @@
  */
 package ghost;
 
+import java.awt.EventQueue;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  *
@@ -15,46 +19,87 @@ public class GhostUI extends javax.swing.JFrame {
 
     private Game game;
 
+    // moves are played here, off the event dispatch thread, one at a time
+    private final ExecutorService mover = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Ghost moves");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     /**
-     * Creates new form GhostUI
+     * Creates new form GhostUI, waiting for its game to be started with start()
      */
-    public GhostUI(Game game) {
+    public GhostUI() {
         initComponents();
         setup();
+        input.setEnabled(false);
+        status.setText("Loading dictionary...");
+    }
+
+    // shows how far the dictionary has been read, or that it is being solved once it has all been read.
+    // totalBytes is 0 if unknown, e.g. for gzipped dictionaries; then only the amount read so far is shown,
+    // as the end of loading cannot be told from the bytes read
+    public void showProgress(long bytesRead, long totalBytes) {
+        if (totalBytes == 0) {
+            status.setText((bytesRead == 0) ? "Loading dictionary..."
+                    : String.format("Loading dictionary... %.1f MB", bytesRead / 1e6));
+        } else if (bytesRead < totalBytes) {
+            status.setText("Loading dictionary... " + (100 * bytesRead / totalBytes) + "%");
+        } else {
+            status.setText("Solving...");
+        }
+    }
+
+    public void start(Game game) {
         this.game = game;
         this.game.addObserver(new GameObserver());
+        status.setText("User's Turn.");
+        input.setEnabled(true);
+        input.requestFocusInWindow();
     }
 
+    // notified on the mover thread; reads the game there and shows it on the event dispatch thread
     private class GameObserver implements Observer {
 
         @Override
         public void update(Observable o, Object arg) {
-            currDisplay.setText(game.currWord);
-            if (game.winner == -1) {
-                if (game.currMover.equals("User")) {
-                    status.setText("User's Turn.");
-                } else {
-                    status.setText("Computer's Turn.");
-                    game.compMove();
-                }
+            GameState state = game.state;
+            final String word = state.word();
+            final String text;
+            if (!state.isOver()) {
+                text = "User's Turn.";
             } else {
                 String winnerText = "";
-                if (game.winStatus == 0) {
+                if (state.winStatus() == GameState.INVALID_WORD) {
                     winnerText += "Invalid word. ";
-                } else if (game.winStatus == 1) {
+                } else if (state.winStatus() == GameState.NO_LONG_WORD) {
                     winnerText += "No valid word longer than 3 letters can be extended from this word. ";
                 } else {
                     winnerText += "Word completed. ";
                 }
 
-                if (game.winner == 0) {
+                if (state.winner() == GameState.USER) {
                     winnerText += "User wins.";
                 } else {
                     winnerText += "Computer wins.";
                 }
 
-                status.setText(winnerText);
+                text = winnerText;
             }
+            final boolean over = state.isOver();
+            EventQueue.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    currDisplay.setText(word);
+                    status.setText(text);
+                    input.setText("");
+                    input.setEnabled(!over);
+                    input.requestFocusInWindow();
+                }
+            });
         }
     }
 
@@ -153,8 +198,18 @@ public class GhostUI extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void inputActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_inputActionPerformed
-        char c = input.getText().charAt(0);
-        game.move(c);
+        if (input.getText().isEmpty()) {
+            return;
+        }
+        final int c = input.getText().codePointAt(0);
+        input.setEnabled(false);
+        status.setText("Computer's Turn.");
+        mover.execute(new Runnable() {
+            @Override
+            public void run() {
+                game.move(c);
+            }
+        });
     }//GEN-LAST:event_inputActionPerformed
 
     /**
@@ -0,0 +1,239 @@
+package ghost;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide engine metrics, always on: how long the last dictionary took
+ * to load and how fast it was read, the size of its trie, how long its solve
+ * spent on each depth, the latency of moves and how many games have ended.
+ * Read them over JMX (ghost:type=Metrics, once install() has run) or as the
+ * plain text of toString(), which install() also prints every N seconds when
+ * the ghost.metrics.dump system property is set to N.
+ *
+ * Recording is cheap enough to leave on: the load, trie and solve figures are
+ * recorded once per dictionary; a finished game costs one LongAdder increment;
+ * and only one game in 16, chosen by its seed, has its moves timed.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    static final int SAMPLE_MASK = 15; // games whose seed has these bits clear have their moves timed
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    // the last dictionary loaded
+    private volatile long loadNanos;
+    private volatile long words;
+    private volatile long bytesRead;
+    private volatile double wordsPerSecond;
+    private volatile int nodes;
+    private volatile long heapBytes;
+    private volatile long solveNanos;
+    private volatile long[] solveNanosByDepth = new long[0];
+
+    private final LongAdder games = new LongAdder();
+    private final AtomicLongArray moveLatency = new AtomicLongArray(64); // bucket i: latencies in [2^(i-1), 2^i) ns
+    private final long started = System.nanoTime();
+
+    private Metrics() {
+    }
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, unless they already are, and starts the
+     * periodic dump to System.err if ghost.metrics.dump is set.
+     */
+    public static synchronized void install() {
+        try {
+            ObjectName name = new ObjectName("ghost:type=Metrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+                Long period = Long.getLong("ghost.metrics.dump");
+                if (period != null && period > 0) {
+                    INSTANCE.dumpEvery(period, TimeUnit.SECONDS, System.err);
+                }
+            }
+        } catch (JMException x) {
+            throw new IllegalStateException(x);
+        }
+    }
+
+    // prints toString() to out every period on a daemon thread
+    public void dumpEvery(long period, TimeUnit unit, final PrintStream out) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Ghost metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                out.print(Metrics.this);
+                out.flush();
+            }
+        }, period, period, unit);
+    }
+
+    // a dictionary of words in bytes, read in nanos
+    void loaded(long words, long bytes, long nanos) {
+        loadNanos = nanos;
+        this.words = words;
+        bytesRead = bytes;
+        wordsPerSecond = (nanos == 0) ? 0 : words * 1e9 / nanos;
+    }
+
+    // a solved trie read from a snapshot instead of a dictionary
+    void mapped(long bytes, long nanos) {
+        loadNanos = nanos;
+        words = 0;
+        bytesRead = bytes;
+        wordsPerSecond = 0;
+    }
+
+    // the trie built for the last dictionary, with the time its solve took if it was solved here
+    void built(Trie trie) {
+        nodes = trie.size();
+        heapBytes = trie.heapBytes();
+        solveNanosByDepth = trie.solveNanosByDepth.clone();
+        solveNanos = trie.solveNanos;
+    }
+
+    static boolean isTimed(long seed) {
+        return (seed & SAMPLE_MASK) == 0;
+    }
+
+    void moved(long nanos) {
+        moveLatency.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+    }
+
+    void gameEnded() {
+        games.increment();
+    }
+
+    @Override
+    public double getLoadMillis() {
+        return loadNanos / 1e6;
+    }
+
+    @Override
+    public long getWords() {
+        return words;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public double getWordsPerSecond() {
+        return wordsPerSecond;
+    }
+
+    @Override
+    public int getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public double getHeapBytesPerNode() {
+        return (nodes == 0) ? 0 : (double) heapBytes / nodes;
+    }
+
+    @Override
+    public double getSolveMillis() {
+        return solveNanos / 1e6;
+    }
+
+    @Override
+    public double[] getSolveMillisByDepth() {
+        long[] nanos = solveNanosByDepth;
+        int depths = nanos.length;
+        while (depths > 0 && nanos[depths - 1] == 0) {
+            depths--;
+        }
+        double[] millis = new double[depths];
+        for (int i = 0; i < depths; i++) {
+            millis[i] = nanos[i] / 1e6;
+        }
+        return millis;
+    }
+
+    @Override
+    public long getGames() {
+        return games.sum();
+    }
+
+    @Override
+    public double getGamesPerSecond() {
+        return games.sum() * 1e9 / (System.nanoTime() - started);
+    }
+
+    @Override
+    public long getTimedMoves() {
+        long moves = 0;
+        for (int i = 0; i < moveLatency.length(); i++) {
+            moves += moveLatency.get(i);
+        }
+        return moves;
+    }
+
+    @Override
+    public long[] getMoveLatencyHistogram() {
+        long[] counts = new long[moveLatency.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = moveLatency.get(i);
+        }
+        return counts;
+    }
+
+    // upper bound of the bucket holding the p-th percentile of timed move latencies, in nanoseconds
+    @Override
+    public long getMoveLatencyPercentile(double p) {
+        long[] counts = getMoveLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(total * p / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return (i == 63) ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("load: %.1f ms, %d words (%.1f MB), %.0f words/sec%n",
+                getLoadMillis(), words, bytesRead / 1e6, wordsPerSecond));
+        out.append(String.format("trie: %d nodes, %.1f bytes/node%n", nodes, getHeapBytesPerNode()));
+        out.append(String.format("solve: %.1f ms; by depth (thread ms):", getSolveMillis()));
+        double[] byDepth = getSolveMillisByDepth();
+        for (int i = 0; i < byDepth.length; i++) {
+            out.append(String.format(" %d:%.2f", i, byDepth[i]));
+        }
+        out.append(String.format("%ngames: %d, %.1f games/sec%n", getGames(), getGamesPerSecond()));
+        out.append(String.format("moves: %d timed, p50 < %d ns, p99 < %d ns, p99.9 < %d ns%n",
+                getTimedMoves(), getMoveLatencyPercentile(50), getMoveLatencyPercentile(99), getMoveLatencyPercentile(99.9)));
+        return out.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package ghost;
+
+// the JMX view of Metrics
+public interface MetricsMXBean {
+
+    double getLoadMillis();
+
+    long getWords();
+
+    long getBytesRead();
+
+    double getWordsPerSecond();
+
+    int getNodes();
+
+    double getHeapBytesPerNode();
+
+    double getSolveMillis();
+
+    // thread time spent solving the nodes at each depth, summed over all solver threads
+    double[] getSolveMillisByDepth();
+
+    long getGames();
+
+    // games ended per second since the process started
+    double getGamesPerSecond();
+
+    long getTimedMoves();
+
+    // counts of timed moves (Engine.bestMove calls) by latency: bucket i holds latencies in [2^(i-1), 2^i) ns
+    long[] getMoveLatencyHistogram();
+
+    long getMoveLatencyPercentile(double p);
+}
@@ -0,0 +1,255 @@
+package ghost;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Perfect play flattened into a table from word prefix to best moves, so a
+ * stateless service can answer "best move for prefix X" from a memory-mapped
+ * file with one binary search, without building or loading a trie.
+ *
+ * There is one entry for every prefix at which the game is still going on,
+ * in sorted order; its moves are the letters Engine.bestMove chooses between
+ * for the player to move there. Layout (little-endian): a 16 byte header of
+ * magic, version, entry count and length of the letter data, then count + 1
+ * int offsets into the letter data, then the letter data itself, one int per
+ * letter. Entry i occupies ints [offset[i], offset[i + 1]): the prefix length,
+ * the prefix, then the moves, letters as code points. A MoveTable is immutable
+ * and may be shared between threads.
+ */
+public class MoveTable {
+
+    static final int MAGIC = 0x474d4f56; // "GMOV"
+    static final int VERSION = 2;
+    static final String SUFFIX = ".moves";
+
+    private static final int HEADER_BYTES = 16;
+
+    private final int count;
+    private final IntBuffer offsets;
+    private final IntBuffer letters;
+
+    private MoveTable(int count, IntBuffer offsets, IntBuffer letters) {
+        this.count = count;
+        this.offsets = offsets;
+        this.letters = letters;
+    }
+
+    public static MoveTable open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_BYTES || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException(file + " is not a move table");
+            }
+            int count = buf.getInt();
+            int length = buf.getInt();
+            if (channel.size() != bytes(count, length)) {
+                throw new IOException(file + " is truncated");
+            }
+            buf.position(HEADER_BYTES);
+            IntBuffer offsets = buf.asIntBuffer();
+            offsets.limit(count + 1);
+            buf.position(HEADER_BYTES + (count + 1) * 4);
+            IntBuffer letters = buf.asIntBuffer();
+            letters.limit(length);
+            return new MoveTable(count, offsets, letters);
+        } finally {
+            channel.close(); // the mapping stays valid
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // returns the entry for prefix, or -1 if the game is over (or was never reached) at prefix
+    public int find(CharSequence prefix) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, prefix);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // compares the prefix of entry with prefix letter by letter, i.e. by code point
+    private int compare(int entry, CharSequence prefix) {
+        int start = offsets.get(entry);
+        int length = letters.get(start);
+        int i = 0;
+        for (int j = 0; j < prefix.length(); i++) {
+            if (i == length) {
+                return -1;
+            }
+            int c = Character.codePointAt(prefix, j);
+            int cmp = letters.get(start + 1 + i) - c;
+            if (cmp != 0) {
+                return cmp;
+            }
+            j += Character.charCount(c);
+        }
+        return (i == length) ? 0 : 1;
+    }
+
+    public int moveCount(int entry) {
+        int start = offsets.get(entry);
+        return offsets.get(entry + 1) - start - 1 - letters.get(start);
+    }
+
+    // returns the i-th best move of entry, a code point, in letter order
+    public int move(int entry, int i) {
+        int start = offsets.get(entry);
+        return letters.get(start + 1 + letters.get(start) + i);
+    }
+
+    // the best moves for prefix, or null if the game is over at prefix
+    public String moves(CharSequence prefix) {
+        int entry = find(prefix);
+        if (entry < 0) {
+            return null;
+        }
+        int[] moves = new int[moveCount(entry)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = move(entry, i);
+        }
+        return new String(moves, 0, moves.length);
+    }
+
+    /**
+     * Writes the table for a solved trie. The trie is walked depth first in label order, which lists the
+     * prefixes in sorted order, so no sort is needed. Written to a temporary file first and moved into place.
+     * Throws IllegalArgumentException if the table would not fit in a file of 2 GB, the most that can be mapped.
+     */
+    public static void write(GameTrie trie, Path file) throws IOException {
+        Export export = new Export(trie);
+        export.walk(trie.root());
+
+        Path tmp = Paths.get(file + ".tmp");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes(export.count, export.length));
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(export.count).putInt(export.length);
+            buf.asIntBuffer().put(export.offsets, 0, export.count + 1);
+            buf.position(HEADER_BYTES + (export.count + 1) * 4);
+            buf.asIntBuffer().put(export.letters, 0, export.length);
+            buf.force();
+        } finally {
+            channel.close();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long bytes(int count, int length) {
+        return HEADER_BYTES + (count + 1) * 4L + length * 4L;
+    }
+
+    // collects the entries in memory; small next to the trie they are taken from
+    private static class Export {
+
+        final GameTrie trie;
+        int[] prefix = new int[64];
+        int[] offsets = new int[1 << 12];
+        int[] letters = new int[1 << 16];
+        int count;
+        int length;
+
+        Export(GameTrie trie) {
+            this.trie = trie;
+        }
+
+        // adds the entries for root and every node below it at which the game goes on, depth first in label
+        // order. walks with explicit stacks of ancestors and their next child, so arbitrarily long words
+        // cannot overflow the call stack.
+        void walk(int root) {
+            int[] nodes = new int[prefix.length];
+            int[] next = new int[prefix.length];
+            int depth = 0;
+            nodes[0] = root;
+            add(root, 0);
+            while (depth >= 0) {
+                int node = nodes[depth];
+                int i = next[depth]++;
+                if (i == trie.childCount(node)) {
+                    depth--;
+                    continue;
+                }
+                int child = trie.nthChild(node, i);
+                if (trie.hasLongWord(child) && !trie.isTerminal(child)) { // else the game ends there
+                    if (depth + 1 == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                        next = Arrays.copyOf(next, next.length * 2);
+                        prefix = Arrays.copyOf(prefix, prefix.length * 2);
+                    }
+                    prefix[depth++] = trie.label(child);
+                    nodes[depth] = child;
+                    next[depth] = 0;
+                    add(child, depth);
+                }
+            }
+        }
+
+        // adds the entry for node, reached by the depth letters in prefix
+        private void add(int node, int depth) {
+            int userGoals = (depth % 2 == 0) ? trie.userGoalCount(node) : 0;
+            int compGoals = (depth % 2 == 1) ? trie.compGoalCount(node) : 0;
+            int moves = (userGoals > 0) ? userGoals : (compGoals > 0) ? compGoals : trie.maxLosingPathCount(node);
+
+            ensure(1 + depth + moves);
+            offsets[count++] = length;
+            letters[length++] = depth;
+            System.arraycopy(prefix, 0, letters, length, depth);
+            length += depth;
+            for (int i = 0; i < moves; i++) {
+                int move = (userGoals > 0) ? trie.userGoal(node, i)
+                        : (compGoals > 0) ? trie.compGoal(node, i) : trie.maxLosingPath(node, i);
+                letters[length++] = trie.label(move);
+            }
+            offsets[count] = length;
+        }
+
+        private void ensure(int entryLength) {
+            if (bytes(count + 1, length + entryLength) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("the entries do not fit in a move table of 2 GB");
+            }
+            if (count + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            if (length + entryLength > letters.length) {
+                letters = Arrays.copyOf(letters, Math.max(length + entryLength, letters.length * 2));
+            }
+        }
+    }
+
+    // exports the move table for a dictionary, by default next to it
+    public static void main(String[] args) throws IOException {
+        String dictionary = (args.length > 0) ? args[0] : "WORD.LST.txt";
+        Path file = Paths.get((args.length > 1) ? args[1] : dictionary + SUFFIX);
+
+        long start = System.nanoTime();
+        write(TrieSnapshot.open(dictionary).freeze(), file);
+        MoveTable table = open(file);
+        System.out.printf("%d prefixes, %.1f MB, written in %.1f ms%n",
+                table.size(), Files.size(file) / 1e6, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,165 @@
+package ghost;
+
+import java.io.IOException;
+
+/**
+ * Optimal play for Ghost between any number of players, 2 to MAX_PLAYERS, on
+ * a SolvedTrie shared with the two-player game and with solutions for other
+ * numbers of players. Players take turns in order, so the player to move at a
+ * node of depth d is d mod players; the player who completes a word of four
+ * or more letters, or leaves no such word to complete, loses, and the game
+ * ends there.
+ *
+ * With more than two players "winning" means not being the one who loses,
+ * and a player may have several ways to make someone else lose. Every player
+ * plays to survive; among moves that survive it picks the one that makes the
+ * next player after it in turn order lose, and then the shortest game; when
+ * every move loses, it picks the longest game. With two players the same
+ * player wins from every node as in the two-player solution, though a player
+ * who cannot win may prolong the game differently.
+ *
+ * Solved in one bottom-up pass over the nodes: the trie numbers every node
+ * after its parent. The result of a node is kept in an int: the player who
+ * loses in the low four bits and the length of the final word above them.
+ */
+public final class NPlayerSolution {
+
+    public static final int MAX_PLAYERS = 16;
+
+    private static final int LOSER_BITS = 4;
+    private static final int LOSER_MASK = (1 << LOSER_BITS) - 1;
+
+    private final SolvedTrie trie;
+    private final int players;
+    private final int[] result;
+
+    // trie must not be minimized, as the players at a shared node would depend on how it was reached
+    public NPlayerSolution(SolvedTrie trie, int players) {
+        if (players < 2 || players > MAX_PLAYERS) {
+            throw new IllegalArgumentException(players + " players");
+        }
+        this.trie = trie;
+        this.players = players;
+        int size = trie.size();
+        result = new int[size];
+
+        int[] depth = new int[size];
+        for (int node = 0; node < size; node++) {
+            for (int i = trie.childCount(node) - 1; i >= 0; i--) {
+                int child = trie.nthChild(node, i);
+                if (child <= node || depth[child] != 0) {
+                    throw new IllegalArgumentException("node " + child + " has more than one parent; the trie is minimized");
+                }
+                depth[child] = depth[node] + 1;
+            }
+        }
+        for (int node = size - 1; node >= 0; node--) {
+            int d = depth[node];
+            if (node != trie.root() && isOver(node)) {
+                result[node] = encode((d - 1) % players, d); // whoever moved here loses
+                continue;
+            }
+            int mover = d % players;
+            int best = -1;
+            for (int i = trie.childCount(node) - 1; i >= 0; i--) {
+                int r = result[trie.nthChild(node, i)];
+                if (best < 0 || rank(mover, r) < rank(mover, best)) {
+                    best = r;
+                }
+            }
+            result[node] = best;
+        }
+    }
+
+    // the game ends on reaching node
+    private boolean isOver(int node) {
+        return trie.childCount(node) == 0 || !trie.hasLongWord(node) || trie.isTerminal(node);
+    }
+
+    private static int encode(int loser, int length) {
+        return length << LOSER_BITS | loser;
+    }
+
+    // orders the results of mover's moves, best first: surviving moves by how soon after mover the loser
+    // plays, then shortest game first; then losing moves, longest game first
+    private long rank(int mover, int r) {
+        long loser = r & LOSER_MASK;
+        long length = r >>> LOSER_BITS;
+        if (loser == mover) {
+            return (long) players << 32 | (Integer.MAX_VALUE - length);
+        }
+        return ((loser - mover + players) % players) << 32 | length;
+    }
+
+    public SolvedTrie trie() {
+        return trie;
+    }
+
+    public int players() {
+        return players;
+    }
+
+    // the player to move at a node of the given depth
+    public int mover(int depth) {
+        return depth % players;
+    }
+
+    // the player who loses from node under optimal play
+    public int loser(int node) {
+        return result[node] & LOSER_MASK;
+    }
+
+    // the length of the word the game from node ends with under optimal play
+    public int length(int node) {
+        return result[node] >>> LOSER_BITS;
+    }
+
+    public int bestMoveCount(int node) {
+        int count = 0;
+        for (int i = trie.childCount(node) - 1; i >= 0; i--) {
+            if (result[trie.nthChild(node, i)] == result[node]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // returns the i-th child of node that keeps to optimal play, in label order
+    public int bestMove(int node, int i) {
+        int children = trie.childCount(node);
+        for (int c = 0; c < children; c++) {
+            int child = trie.nthChild(node, c);
+            if (result[child] == result[node] && i-- == 0) {
+                return child;
+            }
+        }
+        return Trie.NONE;
+    }
+
+    // approximate bytes of heap held by the solution, besides the shared trie
+    public long heapBytes() {
+        return 16 + 16 + 4L * result.length;
+    }
+
+    // prints who loses after each opening letter, for 2 to N players
+    public static void main(String[] args) throws IOException {
+        String dictionary = (args.length > 0) ? args[0] : "WORD.LST.txt";
+        int maxPlayers = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        SolvedTrie trie = new Trie(dictionary).freeze();
+        int root = trie.root();
+        System.out.printf("trie %.1f MB%n", trie.heapBytes() / 1e6);
+        for (int players = 2; players <= maxPlayers; players++) {
+            long start = System.nanoTime();
+            NPlayerSolution solution = new NPlayerSolution(trie, players);
+            long nanos = System.nanoTime() - start;
+            StringBuilder openings = new StringBuilder();
+            for (int i = 0; i < trie.childCount(root); i++) {
+                int child = trie.nthChild(root, i);
+                openings.append(' ').appendCodePoint(trie.label(child)).append(solution.loser(child));
+            }
+            System.out.printf("%d players: solved in %.1f ms, %.1f MB; player %d loses, with a %d-letter word;"
+                    + " loser by opening:%s%n", players, nanos / 1e6, solution.heapBytes() / 1e6,
+                    solution.loser(root), solution.length(root), openings);
+        }
+    }
+}
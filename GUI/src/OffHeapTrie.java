@@ -0,0 +1,190 @@
+package ghost;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A SolvedTrie moved out of the Java heap: the same layout (child bitmaps,
+ * first children, info and labels, one region each) in a single direct
+ * ByteBuffer. The garbage collector sees one small buffer object instead of
+ * megabytes of arrays, so a loaded dictionary adds next to nothing to the live
+ * heap that every full collection has to mark and compact. Nodes are still
+ * plain ints, so games walk the buffer without creating an object per node.
+ *
+ * Lookups are a little slower than on the arrays of a SolvedTrie, as every
+ * read goes through the buffer's bounds checks. An OffHeapTrie is immutable
+ * and may be shared by any number of threads; its memory is released when the
+ * buffer is collected.
+ */
+public final class OffHeapTrie implements GameTrie {
+
+    private final Alphabet alphabet;
+    private final int words; // bitmap longs per node
+    private final int size;
+    private final ByteBuffer buf;
+    private final int firstChildAt; // byte offsets of the regions; child bitmaps start at 0
+    private final int infoAt;
+    private final int labelAt;
+
+    OffHeapTrie(Alphabet alphabet, int words, int[] label, int[] firstChild, long[] children, int[] info) {
+        this.alphabet = alphabet;
+        this.words = words;
+        size = label.length;
+        firstChildAt = size * words * 8;
+        infoAt = firstChildAt + size * 4;
+        labelAt = infoAt + size * 4;
+        buf = ByteBuffer.allocateDirect(labelAt + size * 4).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < children.length; i++) {
+            buf.putLong(i * 8, children[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            buf.putInt(firstChildAt + i * 4, firstChild[i]);
+            buf.putInt(infoAt + i * 4, info[i]);
+            buf.putInt(labelAt + i * 4, label[i]);
+        }
+    }
+
+    @Override
+    public int root() {
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    private long children(int word) {
+        return buf.getLong(word * 8);
+    }
+
+    private int firstChild(int node) {
+        return buf.getInt(firstChildAt + node * 4);
+    }
+
+    private int info(int node) {
+        return buf.getInt(infoAt + node * 4);
+    }
+
+    // returns the child of node labelled with the code point c, or Trie.NONE
+    @Override
+    public int child(int node, int c) {
+        int letter = alphabet.index(c);
+        if (letter < 0) {
+            return Trie.NONE;
+        }
+        int w = node * words + (letter >>> 6);
+        long bits = children(w);
+        long bit = 1L << letter;
+        if ((bits & bit) == 0) {
+            return Trie.NONE;
+        }
+        int rank = Long.bitCount(bits & (bit - 1));
+        for (int i = node * words; i < w; i++) {
+            rank += Long.bitCount(children(i));
+        }
+        return firstChild(node) + rank;
+    }
+
+    @Override
+    public int childCount(int node) {
+        int count = 0;
+        for (int i = node * words; i < (node + 1) * words; i++) {
+            count += Long.bitCount(children(i));
+        }
+        return count;
+    }
+
+    // returns the i-th child of node in label order
+    @Override
+    public int nthChild(int node, int i) {
+        return firstChild(node) + i;
+    }
+
+    @Override
+    public int label(int node) {
+        return buf.getInt(labelAt + node * 4);
+    }
+
+    @Override
+    public boolean isTerminal(int node) {
+        return (info(node) & Trie.TERMINAL) != 0;
+    }
+
+    // true if a word of at least 4 letters can still be reached through node
+    @Override
+    public boolean hasLongWord(int node) {
+        return (info(node) & Trie.LONG) != 0;
+    }
+
+    @Override
+    public boolean isCompGoal(int node) {
+        return (info(node) & Trie.COMP_GOAL) != 0;
+    }
+
+    @Override
+    public int compGoalCount(int node) {
+        return count(node, Trie.COMP_GOAL, true);
+    }
+
+    // returns the i-th child of node designated a computer goal
+    @Override
+    public int compGoal(int node, int i) {
+        return nth(node, Trie.COMP_GOAL, true, i);
+    }
+
+    @Override
+    public int userGoalCount(int node) {
+        return count(node, Trie.COMP_GOAL, false);
+    }
+
+    // returns the i-th child of node designated a user goal
+    @Override
+    public int userGoal(int node, int i) {
+        return nth(node, Trie.COMP_GOAL, false, i);
+    }
+
+    @Override
+    public int maxLosingPathCount(int node) {
+        return count(node, Trie.MAX_LOSING, true);
+    }
+
+    // returns the i-th child of node on a path forcing maximal game length
+    @Override
+    public int maxLosingPath(int node, int i) {
+        return nth(node, Trie.MAX_LOSING, true, i);
+    }
+
+    // counts the children of node that have flag set, or that do not if set is false
+    private int count(int node, int flag, boolean set) {
+        int count = 0;
+        for (int n = firstChild(node), end = n + childCount(node); n < end; n++) {
+            if (((info(n) & flag) != 0) == set) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int nth(int node, int flag, boolean set, int i) {
+        for (int n = firstChild(node), end = n + childCount(node); n < end; n++) {
+            if (((info(n) & flag) != 0) == set && i-- == 0) {
+                return n;
+            }
+        }
+        return Trie.NONE;
+    }
+
+    // bytes of native memory held by the node store
+    public long offHeapBytes() {
+        return buf.capacity();
+    }
+
+    // approximate bytes of heap still held: this object, the buffer object and the alphabet
+    public long heapBytes() {
+        return 64 + 64 + alphabet.heapBytes();
+    }
+}
@@ -0,0 +1,160 @@
+package ghost;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves a Trie on a ForkJoinPool. Sibling subtrees are independent until
+ * their parent combines them, so every child whose subtree holds at least
+ * threshold nodes is solved as its own task; smaller subtrees are solved
+ * serially. Each parent is combined only after all of its children are
+ * done, visiting them in the same order as Trie.solveTrie, so the result is
+ * identical to the serial solve.
+ */
+public class ParallelSolver {
+
+    public static final int DEFAULT_THRESHOLD = 2048;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public ParallelSolver(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public void solve(Trie trie) {
+        solve(trie, null);
+    }
+
+    // as above, also adding the thread time spent on the nodes at each depth to nanosByDepth, unless it is null
+    public void solve(final Trie trie, long[] nanosByDepth) {
+        final int[] subtreeSize = new int[trie.size];
+        trie.postOrder(trie.root(), new Trie.Visitor() {
+            @Override
+            public void visit(int node) {
+                int count = 1;
+                for (int n = trie.firstChild[node]; n != Trie.NONE; n = trie.nextSibling[n]) {
+                    count += subtreeSize[n];
+                }
+                subtreeSize[node] = count;
+            }
+        });
+        pool.invoke(new SolveTask(trie, trie.root(), subtreeSize, nanosByDepth));
+    }
+
+    private class SolveTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Trie trie;
+        private final int node;
+        private final int[] subtreeSize;
+        private final long[] nanosByDepth;
+
+        SolveTask(Trie trie, int node, int[] subtreeSize, long[] nanosByDepth) {
+            this.trie = trie;
+            this.node = node;
+            this.subtreeSize = subtreeSize;
+            this.nanosByDepth = nanosByDepth;
+        }
+
+        @Override
+        protected void compute() {
+            long[] times = (nanosByDepth == null) ? null : Trie.newDepthTimes();
+            if (subtreeSize[node] < threshold) {
+                solveTrie(node, times);
+                merge(times);
+                return;
+            }
+            int children = 0;
+            for (int n = trie.firstChild[node]; n != Trie.NONE; n = trie.nextSibling[n]) {
+                children++;
+            }
+            int forked = 0;
+            SolveTask[] tasks = new SolveTask[children];
+            for (int n = trie.firstChild[node]; n != Trie.NONE; n = trie.nextSibling[n]) {
+                if (subtreeSize[n] >= threshold) {
+                    tasks[forked] = new SolveTask(trie, n, subtreeSize, nanosByDepth);
+                    tasks[forked++].fork();
+                } else {
+                    solveTrie(n, times);
+                }
+            }
+            for (int i = forked - 1; i >= 0; i--) {
+                tasks[i].join();
+            }
+            long start = System.nanoTime();
+            trie.solveNode(node);
+            if (times != null) {
+                times[Trie.depthIndex(trie.depth(node))] += System.nanoTime() - start;
+            }
+            merge(times);
+        }
+
+        private void solveTrie(int n, long[] times) {
+            if (times == null) {
+                trie.solveTrie(n);
+            } else {
+                trie.solveTrie(n, times);
+            }
+        }
+
+        private void merge(long[] times) {
+            if (times != null) {
+                synchronized (nanosByDepth) {
+                    for (int i = 0; i < times.length; i++) {
+                        nanosByDepth[i] += times[i];
+                    }
+                }
+            }
+        }
+    }
+
+    // times serial vs. parallel solves of a dictionary for 1..N worker threads
+    public static void main(String[] args) throws IOException {
+        String dictionary = (args.length > 0) ? args[0] : "WORD.LST.txt";
+        int threshold = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_THRESHOLD;
+        int runs = 5;
+
+        Trie trie = new Trie(dictionary);
+        long serial = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            trie.unsolve();
+            long start = System.nanoTime();
+            trie.solveTrie(trie.root());
+            serial = Math.min(serial, System.nanoTime() - start);
+        }
+        int[] info = trie.info.clone();
+        int[] depthOfUserGoal = trie.depthOfUserGoal.clone();
+        int[] depthOfCompGoal = trie.depthOfCompGoal.clone();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(trie.size() + " nodes, " + cores + " cores, threshold " + threshold);
+        System.out.printf("%8s %10s %8s%n", "threads", "ms", "speedup");
+        System.out.printf("%8s %10.2f %8.2f%n", "serial", serial / 1e6, 1.0);
+        for (int threads = 1; threads <= cores; threads = (threads == cores || threads * 2 <= cores) ? threads * 2 : cores) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelSolver solver = new ParallelSolver(pool, threshold);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < runs; i++) {
+                trie.unsolve();
+                long start = System.nanoTime();
+                solver.solve(trie);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            if (!Arrays.equals(info, trie.info) || !Arrays.equals(depthOfUserGoal, trie.depthOfUserGoal)
+                    || !Arrays.equals(depthOfCompGoal, trie.depthOfCompGoal)) {
+                throw new IllegalStateException("parallel solve differs from serial solve with " + threads + " threads");
+            }
+            System.out.printf("%8d %10.2f %8.2f%n", threads, best / 1e6, (double) serial / best);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package ghost;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computer-vs-computer games on a thread pool, without a console or UI. Each
+ * side plays a Strategy. The user's opening letter is drawn uniformly from the
+ * letters that start a word, so every first letter is played, and the
+ * strategies take over from the second letter on. Games are played in batches
+ * that reuse one GameState. Only aggregate results are kept: wins per first
+ * letter and a histogram of game lengths. Each batch is merged into the totals
+ * as soon as it is done, so results can be read while the games run.
+ *
+ * When both sides play OPTIMAL, each game must be won by the side the solution
+ * predicts for its first letter; games that are not are counted as surprises.
+ */
+public class SelfPlay {
+
+    private static final int BATCH = 10000;
+
+    private final Engine engine;
+    private final Strategy user;
+    private final Strategy computer;
+
+    public SelfPlay(Engine engine, Strategy user, Strategy computer) {
+        this.engine = engine;
+        this.user = user;
+        this.computer = computer;
+    }
+
+    /**
+     * Aggregate results of a run. Indexed by first letter in label order; firstLetters holds the letters.
+     * Updated by whole batches under the object's lock, so a snapshot taken with copy() is consistent.
+     */
+    public static class Results {
+
+        public static final int MAX_LENGTH = 64; // longer games are counted in the last bucket
+
+        public final int[] firstLetters; // code points
+        public final long[] games;
+        public final long[] computerWins;
+        public final long[] lengths = new long[MAX_LENGTH];
+        public long surprises; // OPTIMAL vs OPTIMAL games whose winner differs from the solution's
+
+        Results(int[] firstLetters) {
+            this.firstLetters = firstLetters;
+            games = new long[firstLetters.length];
+            computerWins = new long[firstLetters.length];
+        }
+
+        public synchronized long totalGames() {
+            long total = 0;
+            for (long g : games) {
+                total += g;
+            }
+            return total;
+        }
+
+        synchronized void add(Results batch) {
+            for (int i = 0; i < games.length; i++) {
+                games[i] += batch.games[i];
+                computerWins[i] += batch.computerWins[i];
+            }
+            for (int i = 0; i < MAX_LENGTH; i++) {
+                lengths[i] += batch.lengths[i];
+            }
+            surprises += batch.surprises;
+        }
+
+        public synchronized Results copy() {
+            Results copy = new Results(firstLetters);
+            copy.add(this);
+            return copy;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder out = new StringBuilder();
+            long total = 0;
+            long wins = 0;
+            out.append(String.format("%6s %12s %10s%n", "letter", "games", "comp wins"));
+            for (int i = 0; i < games.length; i++) {
+                if (games[i] > 0) {
+                    out.append(String.format("%6s %12d %9.1f%%%n", new String(Character.toChars(firstLetters[i])), games[i], 100.0 * computerWins[i] / games[i]));
+                    total += games[i];
+                    wins += computerWins[i];
+                }
+            }
+            out.append(String.format("%6s %12d %9.1f%%%n", "all", total, (total == 0) ? 0 : 100.0 * wins / total));
+            out.append(String.format("%n%6s %12s%n", "length", "games"));
+            for (int i = 0; i < MAX_LENGTH; i++) {
+                if (lengths[i] > 0) {
+                    out.append(String.format("%6s %12d%n", (i == MAX_LENGTH - 1) ? i + "+" : i, lengths[i]));
+                }
+            }
+            out.append(String.format("%nsurprises: %d%n", surprises));
+            return out.toString();
+        }
+    }
+
+    // a Results to merge batches into, for play(games, threads, results)
+    public Results newResults() {
+        GameTrie trie = engine.trie();
+        int[] letters = new int[trie.childCount(trie.root())];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = trie.label(trie.nthChild(trie.root(), i));
+        }
+        return new Results(letters);
+    }
+
+    public Results play(long games, int threads) throws InterruptedException {
+        Results results = newResults();
+        play(games, threads, results);
+        return results;
+    }
+
+    // plays games on a pool of threads, merging each finished batch into results, and returns once all are done
+    public void play(long games, int threads, final Results results) throws InterruptedException {
+        final long batches = (games + BATCH - 1) / BATCH;
+        final long lastBatch = games - (batches - 1) * BATCH;
+        final AtomicLong nextBatch = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> workers = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        GameState state = engine.newGame(0);
+                        Results batch = newResults();
+                        for (long b; (b = nextBatch.getAndIncrement()) < batches;) {
+                            // batch b plays the games seeded b * BATCH onwards, whichever thread takes it
+                            playBatch(state, (b == batches - 1) ? lastBatch : BATCH, b * BATCH, batch);
+                            results.add(batch);
+                            clear(batch);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException x) {
+                    throw new IllegalStateException(x.getCause());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void playBatch(GameState state, long games, long seed, Results batch) {
+        GameTrie trie = engine.trie();
+        int root = trie.root();
+        int firstLetters = batch.firstLetters.length;
+        for (long g = 0; g < games; g++) {
+            engine.reset(state, seed + g);
+            int first = state.nextInt(firstLetters);
+            int opening = trie.nthChild(root, first);
+            engine.apply(state, trie.label(opening));
+            while (!state.isOver()) {
+                Strategy strategy = (state.mover() == GameState.USER) ? user : computer;
+                engine.apply(state, strategy.move(engine, state));
+            }
+            batch.games[first]++;
+            boolean computerWon = state.winner() == GameState.COMPUTER;
+            if (computerWon) {
+                batch.computerWins[first]++;
+            }
+            if (user == Strategy.OPTIMAL && computer == Strategy.OPTIMAL && computerWon != trie.isCompGoal(opening)) {
+                batch.surprises++;
+            }
+            batch.lengths[Math.min(state.length(), Results.MAX_LENGTH - 1)]++;
+        }
+    }
+
+    private static void clear(Results batch) {
+        Arrays.fill(batch.games, 0);
+        Arrays.fill(batch.computerWins, 0);
+        Arrays.fill(batch.lengths, 0);
+        batch.surprises = 0;
+    }
+
+    // plays games between two strategies, printing progress every second and the results at the end
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String dictionary = (args.length > 0) ? args[0] : "WORD.LST.txt";
+        long games = (args.length > 1) ? Long.parseLong(args[1]) : 1000000;
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Strategy user = (args.length > 3) ? Strategy.valueOf(args[3].toUpperCase()) : Strategy.OPTIMAL;
+        Strategy computer = (args.length > 4) ? Strategy.valueOf(args[4].toUpperCase()) : Strategy.OPTIMAL;
+        Metrics.install();
+
+        GameJournal journal = GameJournal.fromProperties();
+        final SelfPlay selfPlay = new SelfPlay(new Engine(TrieSnapshot.open(dictionary).freeze(), journal), user, computer);
+        final Results results = selfPlay.newResults();
+        System.out.println(games + " games of " + user + " (user) vs " + computer + " (computer) on " + threads + " threads");
+
+        final long start = System.nanoTime();
+        Thread progress = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        TimeUnit.SECONDS.sleep(1);
+                        long played = results.totalGames();
+                        System.out.printf("%d games, %.0f games/sec%n", played, played * 1e9 / (System.nanoTime() - start));
+                    }
+                } catch (InterruptedException x) {
+                    // done
+                }
+            }
+        };
+        progress.setDaemon(true);
+        progress.start();
+        selfPlay.play(games, threads, results);
+        long nanos = System.nanoTime() - start;
+        progress.interrupt();
+
+        System.out.println();
+        System.out.print(results);
+        System.out.printf("%d games in %.1f s, %.0f games/sec%n", games, nanos / 1e9, games * 1e9 / nanos);
+        if (journal != null) {
+            journal.close();
+            System.out.println(journal.recorded() + " games journaled");
+        }
+    }
+}
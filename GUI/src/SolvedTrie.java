@@ -0,0 +1,201 @@
+package ghost;
+
+import java.util.Arrays;
+
+/**
+ * Read-only copy of a fully solved Trie (or its minimized form) for any number
+ * of concurrent games. It keeps only the label, link and info arrays the games
+ * read; they are copied once when the trie is frozen, never written again and
+ * held in final fields, so a SolvedTrie is safely published to every thread
+ * that obtains a reference to it, however it is handed over. Games keep their
+ * own position in a GameState and share the SolvedTrie without copying it.
+ *
+ * The copy is laid out for lookups rather than updates. The children of each
+ * node are stored next to each other in label order, and each node keeps a
+ * bitmap of the letters its children are labelled with, over the dictionary's
+ * Alphabet (one long per node for up to 64 letters). child(node, c) is then an
+ * alphabet lookup, a bit test and a popcount, whatever the language, and the
+ * sibling links are not needed. Node numbers differ from the Trie's.
+ */
+public final class SolvedTrie implements GameTrie {
+
+    private final Alphabet alphabet;
+    private final int words; // bitmap longs per node
+    private final int[] label;
+    private final int[] firstChild;
+    private final long[] children; // bitmap of the child labels of node n in longs [n * words, (n + 1) * words)
+    private final int[] info;
+
+    SolvedTrie(Trie trie) {
+        trie.ensureSolved(trie.root());
+        alphabet = Alphabet.of(trie.label, 1, trie.size);
+        words = Math.max(1, (alphabet.size() + 63) >>> 6);
+
+        // lay out each distinct list of children as one block, breadth first. a minimized trie may share the
+        // tail of a list between parents; such nodes are copied into each block they belong to.
+        int[] block = new int[trie.size]; // first child in the trie -> start of its block, 0 if not laid out yet
+        int[] from = new int[trie.size]; // node in the trie that each node here copies
+        int size = 1;
+        for (int i = 0; i < size; i++) {
+            int first = trie.firstChild[from[i]];
+            if (first != Trie.NONE && block[first] == 0) {
+                block[first] = size;
+                for (int n = first; n != Trie.NONE; n = trie.nextSibling[n]) {
+                    if (size == from.length) {
+                        from = Arrays.copyOf(from, size * 2);
+                    }
+                    from[size++] = n;
+                }
+            }
+        }
+
+        label = new int[size];
+        firstChild = new int[size];
+        children = new long[size * words];
+        info = new int[size];
+        for (int i = 0; i < size; i++) {
+            int node = from[i];
+            label[i] = trie.label[node];
+            info[i] = trie.info[node];
+            int first = trie.firstChild[node];
+            firstChild[i] = (first == Trie.NONE) ? Trie.NONE : block[first];
+            for (int n = first; n != Trie.NONE; n = trie.nextSibling[n]) {
+                int letter = alphabet.index(trie.label[n]);
+                children[i * words + (letter >>> 6)] |= 1L << letter;
+            }
+        }
+    }
+
+    @Override
+    public int root() {
+        return 0;
+    }
+
+    public int size() {
+        return label.length;
+    }
+
+    // the letters of the dictionary this trie was built from
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    // returns the child of node labelled with the code point c, or Trie.NONE
+    @Override
+    public int child(int node, int c) {
+        int letter = alphabet.index(c);
+        if (letter < 0) {
+            return Trie.NONE;
+        }
+        int w = node * words + (letter >>> 6);
+        long bit = 1L << letter;
+        if ((children[w] & bit) == 0) {
+            return Trie.NONE;
+        }
+        int rank = Long.bitCount(children[w] & (bit - 1));
+        for (int i = node * words; i < w; i++) {
+            rank += Long.bitCount(children[i]);
+        }
+        return firstChild[node] + rank;
+    }
+
+    @Override
+    public int childCount(int node) {
+        int count = 0;
+        for (int i = node * words; i < (node + 1) * words; i++) {
+            count += Long.bitCount(children[i]);
+        }
+        return count;
+    }
+
+    // returns the i-th child of node in label order
+    @Override
+    public int nthChild(int node, int i) {
+        return firstChild[node] + i;
+    }
+
+    @Override
+    public int label(int node) {
+        return label[node];
+    }
+
+    @Override
+    public boolean isTerminal(int node) {
+        return (info[node] & Trie.TERMINAL) != 0;
+    }
+
+    // true if a word of at least 4 letters can still be reached through node
+    @Override
+    public boolean hasLongWord(int node) {
+        return (info[node] & Trie.LONG) != 0;
+    }
+
+    @Override
+    public boolean isCompGoal(int node) {
+        return (info[node] & Trie.COMP_GOAL) != 0;
+    }
+
+    @Override
+    public int compGoalCount(int node) {
+        return count(node, Trie.COMP_GOAL, true);
+    }
+
+    // returns the i-th child of node designated a computer goal
+    @Override
+    public int compGoal(int node, int i) {
+        return nth(node, Trie.COMP_GOAL, true, i);
+    }
+
+    @Override
+    public int userGoalCount(int node) {
+        return count(node, Trie.COMP_GOAL, false);
+    }
+
+    // returns the i-th child of node designated a user goal
+    @Override
+    public int userGoal(int node, int i) {
+        return nth(node, Trie.COMP_GOAL, false, i);
+    }
+
+    @Override
+    public int maxLosingPathCount(int node) {
+        return count(node, Trie.MAX_LOSING, true);
+    }
+
+    // returns the i-th child of node on a path forcing maximal game length
+    @Override
+    public int maxLosingPath(int node, int i) {
+        return nth(node, Trie.MAX_LOSING, true, i);
+    }
+
+    // counts the children of node that have flag set, or that do not if set is false
+    private int count(int node, int flag, boolean set) {
+        int count = 0;
+        for (int n = firstChild[node], end = n + childCount(node); n < end; n++) {
+            if (((info[n] & flag) != 0) == set) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int nth(int node, int flag, boolean set, int i) {
+        for (int n = firstChild[node], end = n + childCount(node); n < end; n++) {
+            if (((info[n] & flag) != 0) == set && i-- == 0) {
+                return n;
+            }
+        }
+        return Trie.NONE;
+    }
+
+    // a copy of this trie in native memory, for long-running processes that want it out of the garbage
+    // collector's way
+    public OffHeapTrie offHeap() {
+        return new OffHeapTrie(alphabet, words, label, firstChild, children, info);
+    }
+
+    // approximate bytes of heap held by the node arrays
+    public long heapBytes() {
+        return 4 * 16 + (long) label.length * (3 * 4 + words * 8);
+    }
+}
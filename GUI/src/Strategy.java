@@ -0,0 +1,57 @@
+package ghost;
+
+/**
+ * How a simulated player picks its letters. Every strategy only plays letters
+ * that continue some word, and draws its random choices from the game's own
+ * generator, so a seeded game always plays out the same way.
+ */
+public enum Strategy {
+
+    // the solved strategy, Engine.bestMove
+    OPTIMAL {
+        @Override
+        int move(Engine engine, GameState state) {
+            return engine.bestMove(state);
+        }
+    },
+
+    // any letter that does not lose on the spot, or any letter at all if every one does
+    GREEDY {
+        @Override
+        int move(Engine engine, GameState state) {
+            GameTrie trie = engine.trie();
+            int node = state.node;
+            int safe = 0;
+            for (int i = trie.childCount(node) - 1; i >= 0; i--) {
+                if (isSafe(trie, trie.nthChild(node, i))) {
+                    safe++;
+                }
+            }
+            if (safe == 0) {
+                return RANDOM.move(engine, state);
+            }
+            int pick = state.nextInt(safe);
+            for (int i = 0;; i++) {
+                int child = trie.nthChild(node, i);
+                if (isSafe(trie, child) && pick-- == 0) {
+                    return trie.label(child);
+                }
+            }
+        }
+
+        private boolean isSafe(GameTrie trie, int child) {
+            return trie.hasLongWord(child) && !trie.isTerminal(child);
+        }
+    },
+
+    // any letter that continues some word
+    RANDOM {
+        @Override
+        int move(Engine engine, GameState state) {
+            GameTrie trie = engine.trie();
+            return trie.label(trie.nthChild(state.node, state.nextInt(trie.childCount(state.node))));
+        }
+    };
+
+    abstract int move(Engine engine, GameState state);
+}
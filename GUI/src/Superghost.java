@@ -0,0 +1,456 @@
+package ghost;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Superghost, in which a letter may be added at either end of the fragment.
+ * As in Ghost, the fragment must stay part of some word of four or more
+ * letters, and the player who completes such a word loses; the first player
+ * moves at the empty fragment.
+ *
+ * A fragment can be any substring of any word, so instead of a prefix trie
+ * the words are indexed by a suffix automaton: the smallest automaton whose
+ * paths from the start spell exactly the substrings of the words, about two
+ * states per letter of input. The substrings of a state are the suffixes of
+ * its longest one down to a fixed length, so a fragment is numbered by its
+ * state and length, densely. Adding a letter at the end follows a transition;
+ * adding one at the front either lengthens the fragment within its state or,
+ * for the longest, moves to a state whose suffix link points back. Every move
+ * lengthens the fragment by one letter, so the solver visits the fragments
+ * once each from the longest down, without recursion, and keeps the result
+ * and the words as one bit per fragment. Letters are code points, as in the
+ * Trie, and fragment lengths are counted in letters.
+ */
+public class Superghost {
+
+    public static final int NONE = -1;
+    static final int MIN_WORD = 4; // shorter words do not end the game, so they are left out
+
+    // suffix automaton. end[v] is the position in text of the last letter of the first occurrence of v
+    private int states;
+    private int[] len;
+    private int[] link;
+    private int[] end;
+    private int[] firstEdge;
+    private int edges;
+    private int[] edgeLabel;
+    private int[] edgeTarget;
+    private int[] nextEdge;
+    private int[] text = new int[1 << 16]; // every word, one after the other
+    private int textLength;
+    private int[] wordStart = new int[1 << 12]; // where each word starts in text; wordStart[words] is textLength
+    private int words;
+
+    // the states whose suffix link points to v, for adding a letter in front of v's longest substring
+    private int[] firstLinkChild;
+    private int[] nextLinkChild;
+
+    // fragments: those of state v, of lengths len[link[v]] + 1 .. len[v], are numbered from base[v]
+    private int[] base;
+    private int fragments;
+    private long[] word; // bit per fragment: it is a word of MIN_WORD or more letters
+    private long[] wins; // bit per fragment: the player to move there can force a win
+    private long buildNanos;
+    private long solveNanos;
+
+    // builds and solves Superghost over the words of one or more dictionaries
+    public Superghost(String... dictionaries) throws IOException {
+        this(new DictionaryLoader(), dictionaries);
+    }
+
+    public Superghost(DictionaryLoader loader, String... dictionaries) throws IOException {
+        long start = System.nanoTime();
+        allocate(1 << 16);
+        newState(0, 0);
+        link[0] = NONE;
+        DictionaryLoader.Sink sink = new DictionaryLoader.Sink() {
+            @Override
+            public void add(int[] word, int start, int end) {
+                if (end - start >= MIN_WORD) {
+                    insert(word, start, end);
+                }
+            }
+        };
+        for (String dictionary : dictionaries) {
+            loader.load(sink, dictionary);
+        }
+        trim();
+        linkChildren();
+        number();
+        buildNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        solve();
+        solveNanos = System.nanoTime() - start;
+    }
+
+    private void allocate(int capacity) {
+        len = new int[capacity];
+        link = new int[capacity];
+        end = new int[capacity];
+        firstEdge = new int[capacity];
+        edgeLabel = new int[capacity];
+        edgeTarget = new int[capacity];
+        nextEdge = new int[capacity];
+    }
+
+    private int newState(int length, int position) {
+        if (states == len.length) {
+            int capacity = states * 2;
+            len = Arrays.copyOf(len, capacity);
+            link = Arrays.copyOf(link, capacity);
+            end = Arrays.copyOf(end, capacity);
+            firstEdge = Arrays.copyOf(firstEdge, capacity);
+        }
+        len[states] = length;
+        end[states] = position;
+        firstEdge[states] = NONE;
+        return states++;
+    }
+
+    private void addEdge(int from, int c, int to) {
+        if (edges == edgeLabel.length) {
+            int capacity = edges * 2;
+            edgeLabel = Arrays.copyOf(edgeLabel, capacity);
+            edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+            nextEdge = Arrays.copyOf(nextEdge, capacity);
+        }
+        edgeLabel[edges] = c;
+        edgeTarget[edges] = to;
+        nextEdge[edges] = firstEdge[from];
+        firstEdge[from] = edges++;
+    }
+
+    // returns the state reached from v by c, or NONE
+    private int target(int v, int c) {
+        for (int e = firstEdge[v]; e != NONE; e = nextEdge[e]) {
+            if (edgeLabel[e] == c) {
+                return edgeTarget[e];
+            }
+        }
+        return NONE;
+    }
+
+    private void retarget(int v, int c, int to) {
+        for (int e = firstEdge[v]; e != NONE; e = nextEdge[e]) {
+            if (edgeLabel[e] == c) {
+                edgeTarget[e] = to;
+                return;
+            }
+        }
+    }
+
+    // adds a word to the automaton, starting over from the start state as for a separate string
+    private void insert(int[] w, int start, int stop) {
+        if (textLength + stop - start > text.length) {
+            text = Arrays.copyOf(text, Math.max(textLength + stop - start, text.length * 2));
+        }
+        if (words + 2 > wordStart.length) {
+            wordStart = Arrays.copyOf(wordStart, wordStart.length * 2);
+        }
+        wordStart[words++] = textLength;
+        int last = 0;
+        for (int i = start; i < stop; i++) {
+            int c = w[i];
+            text[textLength] = c;
+            last = extend(last, c, textLength++);
+        }
+        wordStart[words] = textLength;
+    }
+
+    // the usual online construction, extended to several strings: returns the state for the substrings ending
+    // with c at position, given the state last for those ending just before it
+    private int extend(int last, int c, int position) {
+        int q = target(last, c);
+        if (q != NONE) { // seen before in an earlier word
+            return (len[q] == len[last] + 1) ? q : split(last, c, q);
+        }
+        int cur = newState(len[last] + 1, position);
+        int p = last;
+        while (p != NONE && target(p, c) == NONE) {
+            addEdge(p, c, cur);
+            p = link[p];
+        }
+        if (p == NONE) {
+            link[cur] = 0;
+        } else {
+            q = target(p, c);
+            int suffix = (len[p] + 1 == len[q]) ? q : split(p, c, q); // before link[cur], as split may grow link
+            link[cur] = suffix;
+        }
+        return cur;
+    }
+
+    // splits off the substrings of q of length up to len[p] + 1 into a new state, which p and its suffixes
+    // that led to q by c now lead to instead
+    private int split(int p, int c, int q) {
+        int clone = newState(len[p] + 1, end[q]);
+        for (int e = firstEdge[q]; e != NONE; e = nextEdge[e]) {
+            addEdge(clone, edgeLabel[e], edgeTarget[e]);
+        }
+        link[clone] = link[q];
+        while (p != NONE && target(p, c) == q) {
+            retarget(p, c, clone);
+            p = link[p];
+        }
+        link[q] = clone;
+        return clone;
+    }
+
+    // drops the room left for more states, transitions and words
+    private void trim() {
+        len = Arrays.copyOf(len, states);
+        link = Arrays.copyOf(link, states);
+        end = Arrays.copyOf(end, states);
+        firstEdge = Arrays.copyOf(firstEdge, states);
+        edgeLabel = Arrays.copyOf(edgeLabel, edges);
+        edgeTarget = Arrays.copyOf(edgeTarget, edges);
+        nextEdge = Arrays.copyOf(nextEdge, edges);
+        text = Arrays.copyOf(text, textLength);
+        wordStart = Arrays.copyOf(wordStart, words + 1);
+    }
+
+    private void linkChildren() {
+        firstLinkChild = new int[states];
+        nextLinkChild = new int[states];
+        Arrays.fill(firstLinkChild, NONE);
+        for (int v = states - 1; v > 0; v--) {
+            nextLinkChild[v] = firstLinkChild[link[v]];
+            firstLinkChild[link[v]] = v;
+        }
+    }
+
+    // numbers the fragments and marks the words among them
+    private void number() {
+        base = new int[states];
+        long count = 0;
+        for (int v = 1; v < states; v++) {
+            base[v] = (int) count;
+            count += len[v] - len[link[v]];
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalStateException(count + " fragments");
+        }
+        fragments = (int) count;
+        word = new long[(fragments + 63) >>> 6];
+        for (int i = 0; i < words; i++) {
+            int v = 0;
+            for (int j = wordStart[i]; j < wordStart[i + 1]; j++) {
+                v = target(v, text[j]);
+            }
+            set(word, id(v, wordStart[i + 1] - wordStart[i]));
+        }
+    }
+
+    private int id(int v, int length) {
+        return base[v] + length - len[link[v]] - 1;
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    // solves every fragment, longest first, so the fragments a move leads to are always solved already.
+    // the states holding fragments of the current length are kept in active: a state joins at its longest
+    // fragment and leaves after its shortest
+    private void solve() {
+        wins = new long[(fragments + 63) >>> 6];
+        int maxLength = 0;
+        for (int v = 1; v < states; v++) {
+            maxLength = Math.max(maxLength, len[v]);
+        }
+        int[] first = new int[maxLength + 2]; // states sorted by len: those of length L are [first[L], first[L + 1])
+        for (int v = 1; v < states; v++) {
+            first[len[v] + 1]++;
+        }
+        for (int length = 1; length <= maxLength + 1; length++) {
+            first[length] += first[length - 1];
+        }
+        int[] byLength = new int[states - 1];
+        int[] next = Arrays.copyOf(first, first.length);
+        for (int v = 1; v < states; v++) {
+            byLength[next[len[v]]++] = v;
+        }
+
+        int[] active = new int[states - 1];
+        int count = 0;
+        for (int length = maxLength; length > 0; length--) {
+            for (int i = first[length]; i < first[length + 1]; i++) {
+                active[count++] = byLength[i];
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                int v = active[i];
+                if (moverWins(v, length)) {
+                    set(wins, id(v, length));
+                }
+                if (length == len[link[v]] + 1) {
+                    active[i] = active[--count];
+                }
+            }
+        }
+    }
+
+    // whether the player to move at the fragment of v of the given length can force a win, given the
+    // results for the fragments one letter longer
+    private boolean moverWins(int v, int length) {
+        for (int e = firstEdge[v]; e != NONE; e = nextEdge[e]) {
+            if (winningMove(edgeTarget[e], length + 1)) {
+                return true;
+            }
+        }
+        if (length < len[v]) {
+            return winningMove(v, length + 1);
+        }
+        for (int u = firstLinkChild[v]; u != NONE; u = nextLinkChild[u]) {
+            if (winningMove(u, length + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // whether moving to the fragment of v of the given length wins for the player making the move
+    private boolean winningMove(int v, int length) {
+        int id = id(v, length);
+        return !get(word, id) && !get(wins, id);
+    }
+
+    // returns the state of fragment, or NONE if it is not part of any word
+    private int state(CharSequence fragment) {
+        int v = 0;
+        for (int i = 0; i < fragment.length() && v != NONE;) {
+            int c = Character.codePointAt(fragment, i);
+            v = target(v, c);
+            i += Character.charCount(c);
+        }
+        return v;
+    }
+
+    private static int letters(CharSequence fragment) {
+        return Character.codePointCount(fragment, 0, fragment.length());
+    }
+
+    private static String letter(int c) {
+        return new String(Character.toChars(c));
+    }
+
+    // true if fragment is part of some word of MIN_WORD or more letters
+    public boolean isFragment(CharSequence fragment) {
+        return state(fragment) != NONE;
+    }
+
+    public boolean isWord(CharSequence fragment) {
+        int v = state(fragment);
+        return v > 0 && get(word, id(v, letters(fragment)));
+    }
+
+    // whether the player to move at fragment can force a win; the empty fragment is the start of the game
+    public boolean moverWins(CharSequence fragment) {
+        if (fragment.length() == 0) {
+            for (int e = firstEdge[0]; e != NONE; e = nextEdge[e]) {
+                if (winningMove(edgeTarget[e], 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int v = state(fragment);
+        if (v <= 0 || get(word, id(v, letters(fragment)))) {
+            throw new IllegalArgumentException("the game is over at " + fragment);
+        }
+        return get(wins, id(v, letters(fragment)));
+    }
+
+    /**
+     * The fragments the player to move at fragment should play: those that win if there are any, otherwise
+     * every one that does not lose on the spot, which may be none.
+     */
+    public List<String> bestMoves(CharSequence fragment) {
+        List<String> winning = new ArrayList<String>();
+        List<String> safe = new ArrayList<String>();
+        String f = fragment.toString();
+        int v = state(f);
+        if (v == NONE) {
+            return safe;
+        }
+        int length = letters(f) + 1;
+        for (int e = firstEdge[v]; e != NONE; e = nextEdge[e]) {
+            classify(f + letter(edgeLabel[e]), length, edgeTarget[e], winning, safe);
+        }
+        if (v > 0 && length - 1 < len[v]) { // at the start, adding a letter in front is the same as after
+            classify(letter(text[end[v] - length + 1]) + f, length, v, winning, safe);
+        } else if (v > 0) {
+            for (int u = firstLinkChild[v]; u != NONE; u = nextLinkChild[u]) {
+                classify(letter(text[end[u] - len[v]]) + f, length, u, winning, safe);
+            }
+        }
+        return winning.isEmpty() ? safe : winning;
+    }
+
+    // adds move, of the given length in letters, to the list it belongs in, unless it is already there:
+    // adding the same letter at either end of a fragment like "aa" gives the same fragment
+    private void classify(String move, int length, int v, List<String> winning, List<String> safe) {
+        if (!get(word, id(v, length))) {
+            List<String> moves = get(wins, id(v, length)) ? safe : winning;
+            if (!moves.contains(move)) {
+                moves.add(move);
+            }
+        }
+    }
+
+    public int words() {
+        return words;
+    }
+
+    public int states() {
+        return states;
+    }
+
+    public int transitions() {
+        return edges;
+    }
+
+    // the distinct substrings of the words, i.e. the positions of the game
+    public int fragments() {
+        return fragments;
+    }
+
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    public long solveNanos() {
+        return solveNanos;
+    }
+
+    // approximate bytes of heap held by the automaton, the text and the per-fragment bits
+    public long heapBytes() {
+        return 16L * 16 + (long) len.length * 4 * 4 + (long) edgeLabel.length * (4 + 4 + 4) + text.length * 4L
+                + wordStart.length * 4L + states * 4L * 3 + (word.length + wins.length) * 8L;
+    }
+
+    // solves Superghost for a dictionary, compares it with classic Ghost and prints the best moves at fragments
+    public static void main(String[] args) throws IOException {
+        String dictionary = (args.length > 0) ? args[0] : "WORD.LST.txt";
+        DictionaryLoader loader = new DictionaryLoader();
+        Superghost game = new Superghost(loader, dictionary);
+        System.out.printf("%d words: %d states, %d transitions, %d fragments; built in %.0f ms, solved in %.0f ms%n",
+                game.words(), game.states(), game.transitions(), game.fragments(),
+                game.buildNanos() / 1e6, game.solveNanos() / 1e6);
+        SolvedTrie classic = new Trie(dictionary).freeze();
+        System.out.printf("memory: Superghost %.1f MB, classic solved trie %.1f MB%n",
+                game.heapBytes() / 1e6, classic.heapBytes() / 1e6);
+        System.out.println("first player " + (game.moverWins("") ? "wins" : "loses") + "; best openings: "
+                + game.bestMoves(""));
+        for (int i = 1; i < args.length; i++) {
+            System.out.println(args[i] + ": " + (game.isFragment(args[i]) ? game.bestMoves(args[i]) : "not a fragment"));
+        }
+    }
+}
@@ -1,233 +1,1153 @@
 package ghost;
 
-import java.io.*;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
-public class Trie {
+/**
+ * Trie over the dictionary, stored as parallel primitive arrays indexed by
+ * node id instead of one object (plus a HashMap and three ArrayLists) per node.
+ * The root is node 0. Labels are Unicode code points, so a letter outside the
+ * Basic Multilingual Plane is one move like any other. Children of a node form
+ * a singly linked list sorted by label: firstChild[node], then
+ * nextSibling[child].
+ *
+ * Children are also indexed by letter for child(). The letters are numbered
+ * densely, in the order they are first inserted, and each node keeps a bitmap
+ * of its children's letter numbers (one long per node for up to 64 letters)
+ * and its children in letter number order in a block of childSlots. A lookup
+ * is then a letter number lookup, a bit test and a popcount, as in
+ * SolvedTrie, however many children the node has. A block has room for the
+ * next power of two children; a full one is moved to the end of childSlots,
+ * twice as large, and trim() packs the blocks again.
+ *
+ * The solved goal sets are kept as flags on the children themselves:
+ * a node's compGoals are its children with COMP_GOAL set, its userGoals the
+ * children without it, and its maxLosingPaths the children with MAX_LOSING set.
+ *
+ * A word that runs through a shorter word can never be played out, so it
+ * gets no nodes. It is kept aside instead, in shadowed, as the terminal node
+ * of the shorter word and the letters after it, so that removeWord() can add
+ * it back once the shorter word is gone.
+ *
+ * A trie built with lazy() is solved piecemeal instead: the goal accessors
+ * first solve the sub-tree of the node they are asked about, unless an
+ * earlier call already did. Lazy tries may be shared between threads.
+ */
+public class Trie implements GameTrie {
 
-    Node root;
+    public static final int NONE = -1;
 
-    public Trie(String filename) {
-        root = new Node(null, 0);
-        build(filename);
-        solve();
+    // bits of info[node]; the node's depth is stored above DEPTH_SHIFT
+    static final int TERMINAL = 1; // node represents a letter ending a word (of length >= 4), i.e. a leaf
+    static final int COMP_GOAL = 2; // node is a computer (P2) goal
+    static final int MAX_LOSING = 4; // node is one of its parent's maxLosingPaths
+    static final int LONG = 8; // a word of length >= 4 runs through this node, i.e. maxDepth >= 4
+    static final int WORD = 16; // a word of any length ends at this node
+    static final int DEPTH_SHIFT = 5;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int TIMED_DEPTHS = 64; // solve time of deeper nodes is counted at the last depth
+    private static final int PAGE_SHIFT = 8;
+
+    int size;
+    int[] label;
+    int[] firstChild;
+    int[] nextSibling;
+    int[] info;
+    int[] depthOfUserGoal; // depth of lowest user goal in sub-tree rooted at node
+    int[] depthOfCompGoal; // depth of lowest computer goal in sub-tree rooted at node
+
+    // letter numbers: letterPages[c >>> 8][c & 0xff] is 1 + the number of code point c, or 0
+    private int[][] letterPages;
+    private int letters;
+
+    // the child index: node n's bitmap is childBits[n * bitWords, (n + 1) * bitWords) and its children are
+    // childSlots[childBlock[n], childBlock[n] + number of children)
+    private int bitWords;
+    private long[] childBits;
+    private int[] childBlock;
+    private int[] childSlots;
+    private int slotsUsed;
+
+    // path of the last inserted word: pathNode[i] is the node for its first i letters
+    private int[] pathNode = new int[64];
+    private int[] pathChar = new int[64];
+    private int pathLength;
+    private int pathTerminal = Integer.MAX_VALUE; // depth of the first terminal node on the path
+
+    // the words that run through a shorter word, in the order they were met: each is the terminal node the
+    // word runs through, then the number of letters after it and those letters (code points)
+    int[] shadowed = new int[16];
+    int shadowedLength;
+
+    // lazy tries only: bit n is set once the sub-tree rooted at node n is solved. the bit is written after
+    // the sub-tree's arrays, so a thread that sees it set also sees the solution; null when fully solved
+    private AtomicIntegerArray solved;
+
+    // how long the last full solve took, in all and summed by node depth, for the caller to report; 0 and
+    // empty for a trie that was not solved here, e.g. one read from a snapshot
+    long solveNanos;
+    long[] solveNanosByDepth = new long[0];
+
+    // builds and solves the trie over the words of one or more dictionaries
+    public Trie(String... dictionaries) throws IOException {
+        this(new DictionaryLoader(), dictionaries);
     }
 
-    private void build(String filename) {
-        try {
-            BufferedReader buf = new BufferedReader(new FileReader(filename));
-            String line;
-            while ((line = buf.readLine()) != null) {
-                insertWord(line);
-            }
-        } catch (IOException x) {
-            System.out.println("Invalid pathname.");
+    // as above, with load statistics gathered by loader
+    public Trie(DictionaryLoader loader, String... dictionaries) throws IOException {
+        this();
+        for (String dictionary : dictionaries) {
+            loader.load(this, dictionary);
         }
+        trim();
+        solve();
+    }
 
+    // builds the trie over the words of dictionaries, leaving every sub-tree to be solved on first use
+    public static Trie lazy(DictionaryLoader loader, String... dictionaries) throws IOException {
+        Trie trie = new Trie();
+        for (String dictionary : dictionaries) {
+            loader.load(trie, dictionary);
+        }
+        trie.trim();
+        trie.solved = new AtomicIntegerArray((trie.size + 31) >>> 5);
+        return trie;
     }
 
-    private void insertWord(String word) {
-        root.insertWord(word);
+    // an empty, unsolved trie to insert words into
+    Trie() {
+        clearIndex(1);
+        allocate(INITIAL_CAPACITY);
+        newNode(0, 0);
     }
 
-    private void solve() {
-        solveTrie(root);
+    // an already solved trie of the given size whose arrays are filled in by the caller, who then calls index()
+    Trie(int size) {
+        clearIndex(1);
+        allocate(size);
+        this.size = size;
     }
 
-    protected class Node {
+    // inserts the word held in code points [start, end) of word without copying it.
+    // the path of the previously inserted word is kept, so only the part of the word after the prefix it
+    // shares with that word is walked. when the word sorts after everything already below the point where
+    // it branches off, as it does for sorted dictionaries, its remaining nodes are appended without any
+    // child lookups; otherwise they are looked up and inserted in sorted position as usual.
+    void insertWord(int[] word, int start, int end) {
+        int length = end - start;
+        int shared = 0;
+        int max = Math.min(length, pathLength);
+        while (shared < max && pathChar[shared] == word[start + shared]) {
+            shared++;
+        }
+        if (pathTerminal <= shared) {
+            if (pathTerminal < length) {
+                // the word runs through a shorter word already in the trie
+                shadow(pathNode[pathTerminal], word, start + pathTerminal, end);
+            }
+            return;
+        }
 
-        Map<Character, Node> children = new HashMap<Character, Node>();
-        boolean terminal = false; // indicates if this node represents a char ending a word (of length >= 4), i.e. a leaf
-        Character myChar;
-        int depth; // distance from root
-        int maxDepth; // depth of lowest leaf in tree rooted at this node
-        boolean compGoal;
-        int depthOfUserGoal = -1; // depth of lowest user goal in sub-tree rooted at this node
-        int depthOfCompGoal = -1; // depth of lowest user goal in sub-tree rooted at this node
-        List<Node> compGoals = new ArrayList<Node>(); // list of children designated computer (P2) goals
-        List<Node> userGoals = new ArrayList<Node>(); // list of children designated user (P1) goals
-        List<Node> maxLosingPaths = new ArrayList<Node>(); // holds children node(s) that could be taken by losing player to force maximal game length
+        if (length >= 4) {
+            // every ancestor of a LONG node is LONG as well
+            for (int i = shared; i >= 0 && (info[pathNode[i]] & LONG) == 0; i--) {
+                info[pathNode[i]] |= LONG;
+            }
+        }
+        if (pathNode.length <= length) {
+            pathNode = Arrays.copyOf(pathNode, Math.max(length + 1, pathNode.length * 2));
+            pathChar = Arrays.copyOf(pathChar, pathNode.length);
+        }
 
-        private Node(Character myChar, int depth) {
-            this.depth = depth;
-            maxDepth = depth;
-            compGoal = (depth % 2 == 0);
-            this.myChar = myChar;
+        int node = pathNode[shared];
+        boolean append;
+        if (shared == length) {
+            append = false;
+        } else if (shared < pathLength) {
+            int last = pathNode[shared + 1]; // the previous word's branch at this node
+            append = nextSibling[last] == NONE && label[last] < word[start + shared];
+        } else {
+            append = firstChild[node] == NONE;
         }
 
-        void insertWord(String word) {
-            if (terminal) {
+        pathLength = shared;
+        pathTerminal = Integer.MAX_VALUE;
+        for (int i = shared; i < length; i++) {
+            if ((info[node] & TERMINAL) != 0) {
+                pathTerminal = i;
+                shadow(node, word, start + i, end);
                 return;
             }
-            if (word.equals("")) {
-                if (depth >= 4) {
-                    terminal = true;
+            if (length >= 4) {
+                info[node] |= LONG;
+            }
+            int c = word[start + i];
+            if (append) {
+                int newNode = newNode(c, i + 1);
+                if (firstChild[node] == NONE) {
+                    firstChild[node] = newNode;
+                } else {
+                    nextSibling[pathNode[i + 1]] = newNode; // after the previous word's branch, the last child
                 }
-                return;
+                indexChild(node, newNode);
+                node = newNode;
+            } else {
+                int before = size;
+                node = childOrNew(node, c);
+                append = size > before; // nothing can be below a node that was just created
+            }
+            pathNode[i + 1] = node;
+            pathChar[i] = c;
+            pathLength = i + 1;
+        }
+        info[node] |= WORD;
+        if (length >= 4) {
+            info[node] |= LONG | TERMINAL;
+            pathTerminal = length;
+        }
+    }
+
+    // keeps aside the word that runs through terminal and goes on with code points [start, end) of word
+    private void shadow(int terminal, int[] word, int start, int end) {
+        int length = end - start;
+        if (shadowedLength + 2 + length > shadowed.length) {
+            shadowed = Arrays.copyOf(shadowed, Math.max(shadowedLength + 2 + length, shadowed.length * 2));
+        }
+        shadowed[shadowedLength++] = terminal;
+        shadowed[shadowedLength++] = length;
+        System.arraycopy(word, start, shadowed, shadowedLength, length);
+        shadowedLength += length;
+    }
+
+    // removes the words kept aside that run through terminal and returns the letters they go on with, in
+    // order; only those going on with code points [start, end) of word, unless word is null
+    private List<int[]> takeShadowed(int terminal, int[] word, int start, int end) {
+        List<int[]> taken = new ArrayList<int[]>();
+        int kept = 0;
+        for (int i = 0, length; i < shadowedLength; i += 2 + length) {
+            length = shadowed[i + 1];
+            boolean match = shadowed[i] == terminal && (word == null || length == end - start);
+            for (int j = 0; j < length && match && word != null; j++) {
+                match = shadowed[i + 2 + j] == word[start + j];
             }
-            if (!children.containsKey(word.charAt(0))) {
-                Node newNode = new Node(word.charAt(0), depth + 1);
-                addChild(word.charAt(0), newNode);
-                newNode.insertWord(word.substring(1));
+            if (match) {
+                taken.add(Arrays.copyOfRange(shadowed, i + 2, i + 2 + length));
             } else {
-                children.get(word.charAt(0)).insertWord(word.substring(1));
+                System.arraycopy(shadowed, i, shadowed, kept, 2 + length);
+                kept += 2 + length;
+            }
+        }
+        shadowedLength = kept;
+        return taken;
+    }
+
+    // the depth of the first terminal node among path[0..depth], or -1 if there is none
+    private int firstTerminal(int[] path, int depth) {
+        for (int i = 0; i <= depth; i++) {
+            if ((info[path[i]] & TERMINAL) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // removes word, whose first depth + 1 nodes are path[0..depth], from the words kept aside, whichever
+    // terminal node on the path it was kept behind (a shorter word may have been added above that node since).
+    // returns whether it was there
+    private boolean unshadow(int[] path, int depth, int[] word) {
+        boolean found = false;
+        for (int i = 0; i <= depth; i++) {
+            if ((info[path[i]] & TERMINAL) != 0 && !takeShadowed(path[i], word, i, word.length).isEmpty()) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // returns the child of node labelled c, inserting it if absent. only a new child walks the sibling list,
+    // to its place in label order
+    private int childOrNew(int node, int c) {
+        int n = child(node, c);
+        if (n != NONE) {
+            return n;
+        }
+        int prev = NONE;
+        n = firstChild[node];
+        while (n != NONE && label[n] < c) {
+            prev = n;
+            n = nextSibling[n];
+        }
+        int newNode = newNode(c, depth(node) + 1);
+        nextSibling[newNode] = n;
+        if (prev == NONE) {
+            firstChild[node] = newNode;
+        } else {
+            nextSibling[prev] = newNode;
+        }
+        indexChild(node, newNode);
+        return newNode;
+    }
+
+    private int newNode(int c, int depth) {
+        if (size == label.length) {
+            allocate(size * 2);
+        }
+        int n = size++;
+        label[n] = c;
+        firstChild[n] = NONE;
+        nextSibling[n] = NONE;
+        info[n] = depth << DEPTH_SHIFT | ((depth % 2 == 0) ? COMP_GOAL : 0);
+        depthOfUserGoal[n] = -1;
+        depthOfCompGoal[n] = -1;
+        Arrays.fill(childBits, n * bitWords, (n + 1) * bitWords, 0);
+        return n;
+    }
+
+    private void allocate(int capacity) {
+        if (label == null) {
+            label = new int[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            info = new int[capacity];
+            depthOfUserGoal = new int[capacity];
+            depthOfCompGoal = new int[capacity];
+            childBits = new long[capacity * bitWords];
+            childBlock = new int[capacity];
+        } else {
+            label = Arrays.copyOf(label, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            info = Arrays.copyOf(info, capacity);
+            if (depthOfUserGoal != null) { // dropped by minimize()
+                depthOfUserGoal = Arrays.copyOf(depthOfUserGoal, capacity);
+                depthOfCompGoal = Arrays.copyOf(depthOfCompGoal, capacity);
+            }
+            childBits = Arrays.copyOf(childBits, capacity * bitWords);
+            childBlock = Arrays.copyOf(childBlock, capacity);
+        }
+    }
+
+    // forgets every letter number and child block; bitmaps are words longs per node
+    private void clearIndex(int words) {
+        letterPages = new int[(Character.MAX_CODE_POINT >>> PAGE_SHIFT) + 1][];
+        letters = 0;
+        bitWords = words;
+        childSlots = new int[INITIAL_CAPACITY];
+        slotsUsed = 0;
+    }
+
+    // returns the number of code point c, or -1 if no node is labelled c
+    private int letterOf(int c) {
+        if (c < 0 || c > Character.MAX_CODE_POINT) {
+            return -1;
+        }
+        int[] page = letterPages[c >>> PAGE_SHIFT];
+        return (page == null) ? -1 : page[c & ((1 << PAGE_SHIFT) - 1)] - 1;
+    }
+
+    // returns the number of code point c, numbering it and widening the bitmaps if it is new
+    private int letterFor(int c) {
+        int[] page = letterPages[c >>> PAGE_SHIFT];
+        if (page == null) {
+            page = letterPages[c >>> PAGE_SHIFT] = new int[1 << PAGE_SHIFT];
+        }
+        int i = c & ((1 << PAGE_SHIFT) - 1);
+        if (page[i] == 0) {
+            page[i] = ++letters;
+            if (letters > bitWords * 64) {
+                widen(bitWords * 2);
+            }
+        }
+        return page[i] - 1;
+    }
+
+    // copies the bitmaps into words longs per node
+    private void widen(int words) {
+        long[] bits = new long[label.length * words];
+        for (int n = 0; n < size; n++) {
+            System.arraycopy(childBits, n * bitWords, bits, n * words, Math.min(bitWords, words));
+        }
+        childBits = bits;
+        bitWords = words;
+    }
+
+    // the number of children of node whose letter numbers are below letter
+    private int rank(int node, int letter) {
+        int w = node * bitWords + (letter >>> 6);
+        int rank = Long.bitCount(childBits[w] & ((1L << letter) - 1));
+        for (int i = node * bitWords; i < w; i++) {
+            rank += Long.bitCount(childBits[i]);
+        }
+        return rank;
+    }
+
+    private int indexedChildren(int node) {
+        int count = 0;
+        for (int i = node * bitWords; i < (node + 1) * bitWords; i++) {
+            count += Long.bitCount(childBits[i]);
+        }
+        return count;
+    }
+
+    // adds child, just linked below node, to node's bitmap and block
+    private void indexChild(int node, int child) {
+        int letter = letterFor(label[child]);
+        int count = indexedChildren(node);
+        if (Integer.bitCount(count) <= 1) { // 0 or a power of two: the block is full
+            int capacity = Math.max(1, count * 2);
+            if (slotsUsed + capacity > childSlots.length) {
+                childSlots = Arrays.copyOf(childSlots, Math.max(slotsUsed + capacity, childSlots.length * 2));
+            }
+            System.arraycopy(childSlots, childBlock[node], childSlots, slotsUsed, count);
+            childBlock[node] = slotsUsed;
+            slotsUsed += capacity;
+        }
+        int rank = rank(node, letter);
+        int at = childBlock[node] + rank;
+        System.arraycopy(childSlots, at, childSlots, at + 1, count - rank);
+        childSlots[at] = child;
+        childBits[node * bitWords + (letter >>> 6)] |= 1L << letter;
+    }
+
+    // removes child, just unlinked from node, from node's bitmap and block
+    private void unindexChild(int node, int child) {
+        int letter = letterOf(label[child]);
+        int count = indexedChildren(node);
+        int rank = rank(node, letter);
+        int at = childBlock[node] + rank;
+        System.arraycopy(childSlots, at + 1, childSlots, at, count - rank - 1);
+        childBits[node * bitWords + (letter >>> 6)] &= ~(1L << letter);
+    }
+
+    // builds the child index from the sibling lists, for a trie whose arrays were filled in directly
+    void index() {
+        clearIndex(1);
+        for (int n = 1; n < size; n++) {
+            letterFor(label[n]);
+        }
+        packIndex();
+    }
+
+    // lays the child blocks out again back to back, each with room for the next power of two children, and
+    // narrows the bitmaps to the letters there are
+    private void packIndex() {
+        bitWords = Math.max(1, (letters + 63) >>> 6);
+        childBits = new long[label.length * bitWords];
+        slotsUsed = 0;
+        for (int node = 0; node < size; node++) {
+            int count = 0;
+            for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+                int letter = letterOf(label[n]);
+                childBits[node * bitWords + (letter >>> 6)] |= 1L << letter;
+                count++;
+            }
+            childBlock[node] = slotsUsed;
+            slotsUsed += (count <= 1) ? count : Integer.highestOneBit(count - 1) << 1;
+        }
+        childSlots = new int[slotsUsed];
+        for (int node = 0; node < size; node++) {
+            for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+                childSlots[childBlock[node] + rank(node, letterOf(label[n]))] = n;
+            }
+        }
+    }
+
+    /**
+     * Adds word to this solved trie and re-solves only the nodes on its path, bottom-up. A node's solution
+     * depends on its children and grandchildren alone, so the walk towards the root stops as soon as two
+     * nodes in a row come out exactly as before. Returns false, changing nothing, if the word is already
+     * in the trie. Also returns false if the word runs through a shorter word of the trie; such a word is
+     * kept aside, as the loader keeps the ones it meets, and added by removeWord() once the shorter word
+     * is removed. Throws IllegalArgumentException for the empty string.
+     *
+     * Updates must not run while other threads read the trie; games that share it should play on a
+     * freeze()-ed copy, refrozen after a batch of updates.
+     */
+    public synchronized boolean addWord(CharSequence word) {
+        int[] letters = codePoints(word);
+        if (letters.length == 0) {
+            throw new IllegalArgumentException("the empty string is not a word");
+        }
+        prepareUpdate();
+        return add(letters);
+    }
+
+    // addWord() once prepareUpdate() has run
+    private boolean add(int[] word) {
+        int length = word.length;
+        int[] path = new int[length + 1];
+        int[] oldInfo = new int[length + 1];
+        int found = walk(word, path, oldInfo);
+        if (found == length && (info[path[length]] & WORD) != 0) {
+            return false;
+        }
+        int terminal = firstTerminal(path, Math.min(found, length - 1));
+        if (terminal >= 0) {
+            unshadow(path, Math.min(found, length - 1), word); // so it is kept aside once however often it is added
+            shadow(path[terminal], word, terminal, length);
+            return false;
+        }
+        Arrays.fill(oldInfo, found + 1, length + 1, -1); // nodes about to be created
+        insertWord(word, 0, length);
+        pathLength = 0;
+        pathTerminal = Integer.MAX_VALUE;
+        walk(word, path, null);
+        resolvePath(path, length, oldInfo);
+        return true;
+    }
+
+    /**
+     * Removes word from this solved trie, unlinking the nodes no other word needs, and re-solves the
+     * remaining nodes of its path as addWord() does. The longer words kept aside because they run through
+     * word are then added, shortest first; those that still run through a shorter word stay aside. A word
+     * that is itself kept aside is just dropped. Returns false, changing nothing, if word is in neither.
+     * Removed nodes are not reclaimed until the trie is rebuilt.
+     */
+    public synchronized boolean removeWord(CharSequence word) {
+        int[] letters = codePoints(word);
+        int length = letters.length;
+        int[] path = new int[length + 1];
+        int[] oldInfo = new int[length + 1];
+        prepareUpdate();
+        int found = walk(letters, path, oldInfo);
+        if (found != length || (info[path[length]] & WORD) == 0) {
+            return unshadow(path, Math.min(found, length - 1), letters);
+        }
+        unshadow(path, length - 1, letters); // a copy listed after a shorter word above it was kept aside
+        info[path[length]] &= ~(WORD | TERMINAL);
+        int deepest = length;
+        while (deepest > 0 && firstChild[path[deepest]] == NONE && (info[path[deepest]] & WORD) == 0) {
+            unlink(path[deepest - 1], path[deepest]);
+            deepest--;
+        }
+        for (int k = deepest; k >= 0; k--) {
+            int n = path[k];
+            boolean isLong = (info[n] & TERMINAL) != 0;
+            for (int c = firstChild[n]; c != NONE && !isLong; c = nextSibling[c]) {
+                isLong = (info[c] & LONG) != 0;
+            }
+            info[n] = isLong ? info[n] | LONG : info[n] & ~LONG;
+        }
+        resolvePath(path, deepest, oldInfo);
+
+        List<int[]> longer = takeShadowed(path[length], null, 0, 0);
+        Collections.sort(longer, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return Integer.compare(a.length, b.length);
+            }
+        });
+        for (int[] suffix : longer) {
+            int[] w = Arrays.copyOf(letters, length + suffix.length);
+            System.arraycopy(suffix, 0, w, length, suffix.length);
+            add(w);
+        }
+        return true;
+    }
+
+    // updates need the whole trie solved and the depth arrays, which a minimized copy does not have
+    private void prepareUpdate() {
+        if (depthOfUserGoal == null) {
+            throw new UnsupportedOperationException("a minimized trie cannot be updated");
+        }
+        ensureSolved(root());
+        solved = null;
+        pathLength = 0;
+        pathTerminal = Integer.MAX_VALUE;
+    }
+
+    private static int[] codePoints(CharSequence word) {
+        int[] letters = new int[Character.codePointCount(word, 0, word.length())];
+        for (int i = 0, j = 0; i < letters.length; i++) {
+            letters[i] = Character.codePointAt(word, j);
+            j += Character.charCount(letters[i]);
+        }
+        return letters;
+    }
+
+    // follows word from the root, filling in path[i] (and the structural flags of the node in oldInfo[i]) for
+    // as many letters i as are in the trie, and returns how many that is. nodes below a terminal node, left
+    // by words inserted before the shorter word that ends there, are followed like any other
+    private int walk(int[] word, int[] path, int[] oldInfo) {
+        int node = root();
+        path[0] = node;
+        if (oldInfo != null) {
+            oldInfo[0] = info[node] & (TERMINAL | LONG | WORD);
+        }
+        for (int i = 0; i < word.length; i++) {
+            node = child(node, word[i]);
+            if (node == NONE) {
+                return i;
+            }
+            path[i + 1] = node;
+            if (oldInfo != null) {
+                oldInfo[i + 1] = info[node] & (TERMINAL | LONG | WORD);
+            }
+        }
+        return word.length;
+    }
+
+    private void unlink(int parent, int node) {
+        unindexChild(parent, node);
+        if (firstChild[parent] == node) {
+            firstChild[parent] = nextSibling[node];
+            return;
+        }
+        int n = firstChild[parent];
+        while (nextSibling[n] != node) {
+            n = nextSibling[n];
+        }
+        nextSibling[n] = nextSibling[node];
+    }
+
+    // re-solves path[deepest], ..., path[0] until two nodes in a row keep their flags and solution
+    // (oldInfo is -1 for nodes that are new)
+    private void resolvePath(int[] path, int deepest, int[] oldInfo) {
+        int unchanged = 0;
+        for (int k = deepest; k >= 0 && unchanged < 2; k--) {
+            int n = path[k];
+            int compGoal = info[n] & COMP_GOAL;
+            int userDepth = depthOfUserGoal[n];
+            int compDepth = depthOfCompGoal[n];
+            solveNode(n);
+            boolean same = oldInfo[k] == (info[n] & (TERMINAL | LONG | WORD)) && compGoal == (info[n] & COMP_GOAL)
+                    && userDepth == depthOfUserGoal[n] && compDepth == depthOfCompGoal[n];
+            unchanged = same ? unchanged + 1 : 0;
+        }
+    }
+
+    // drop the slack left over from doubling while building
+    private void trim() {
+        if (size < label.length) {
+            allocate(size);
+        }
+        shadowed = Arrays.copyOf(shadowed, shadowedLength);
+        packIndex();
+    }
+
+    private void solve() {
+        solved = null;
+        long[] nanosByDepth = newDepthTimes();
+        long start = System.nanoTime();
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            new ParallelSolver().solve(this, nanosByDepth);
+        } else {
+            solveTrie(0, nanosByDepth);
+        }
+        solveNanos = System.nanoTime() - start;
+        solveNanosByDepth = nanosByDepth;
+    }
+
+    // resets every node to its unsolved state
+    void unsolve() {
+        for (int n = 0; n < size; n++) {
+            info[n] &= ~(COMP_GOAL | MAX_LOSING);
+            if (depth(n) % 2 == 0) {
+                info[n] |= COMP_GOAL;
+            }
+            depthOfUserGoal[n] = -1;
+            depthOfCompGoal[n] = -1;
+        }
+    }
+
+    /**
+     * Returns a minimized copy of this solved trie in which equivalent nodes are shared, so that common
+     * suffixes ("-ing", "-ness", ...) are stored once. Two nodes are merged only when they have the same
+     * label, the same TERMINAL / COMP_GOAL / MAX_LOSING / LONG / WORD flags, the same depth parity and
+     * (recursively) the same children and following siblings, so every move and goal lookup answers
+     * exactly as in this trie. The copy is read-only: depth() only gives the parity of a node's depth and
+     * the goal depths used while solving are dropped.
+     */
+    public Trie minimize() {
+        ensureSolved(0);
+        final Trie dawg = new Trie(size);
+        dawg.depthOfUserGoal = null;
+        dawg.depthOfCompGoal = null;
+        dawg.size = 1; // the root keeps id 0
+
+        final int[] table = new int[Integer.highestOneBit(Math.max(size, 2)) * 4];
+        Arrays.fill(table, NONE);
+        final int[] map = new int[size];
+
+        postOrder(0, new Visitor() {
+            int[] stack = new int[64];
+
+            @Override
+            public void visit(int node) {
+                // a node's key depends on its next sibling, so canonicalize the children right to left
+                int count = 0;
+                for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+                    if (count == stack.length) {
+                        stack = Arrays.copyOf(stack, count * 2);
+                    }
+                    stack[count++] = n;
+                }
+                int next = NONE;
+                for (int i = count - 1; i >= 0; i--) {
+                    int n = stack[i];
+                    int child = (firstChild[n] == NONE) ? NONE : map[firstChild[n]];
+                    next = dawg.intern(table, label[n], minimizedInfo(n), child, next);
+                    map[n] = next;
+                }
+                if (node == 0) {
+                    dawg.label[0] = label[0];
+                    dawg.info[0] = minimizedInfo(0);
+                    dawg.firstChild[0] = next;
+                    dawg.nextSibling[0] = NONE;
+                }
+            }
+        });
+        dawg.allocate(dawg.size); // drop the room left for the nodes that were merged
+        dawg.index();
+        return dawg;
+    }
+
+    // returns an immutable copy of this trie, solved in full first, that concurrent games can share
+    public SolvedTrie freeze() {
+        return new SolvedTrie(this);
+    }
+
+    private int minimizedInfo(int node) {
+        return (info[node] & ((1 << DEPTH_SHIFT) - 1)) | (depth(node) % 2) << DEPTH_SHIFT;
+    }
+
+    // returns the node with these fields, adding it if there is none yet
+    private int intern(int[] table, int c, int nodeInfo, int child, int sibling) {
+        int hash = c;
+        hash = hash * 31 + nodeInfo;
+        hash = hash * 31 + child;
+        hash = hash * 31 + sibling;
+        hash ^= hash >>> 16;
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int n = table[slot];
+            if (n == NONE) {
+                n = size++;
+                label[n] = c;
+                info[n] = nodeInfo;
+                firstChild[n] = child;
+                nextSibling[n] = sibling;
+                table[slot] = n;
+                return n;
+            }
+            if (label[n] == c && info[n] == nodeInfo && firstChild[n] == child && nextSibling[n] == sibling) {
+                return n;
+            }
+        }
+    }
+
+    @Override
+    public int root() {
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // returns the child of node labelled with the code point c, or NONE
+    @Override
+    public int child(int node, int c) {
+        int letter = letterOf(c);
+        if (letter < 0 || (childBits[node * bitWords + (letter >>> 6)] & 1L << letter) == 0) {
+            return NONE;
+        }
+        return childSlots[childBlock[node] + rank(node, letter)];
+    }
+
+    @Override
+    public int childCount(int node) {
+        int count = 0;
+        for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+            count++;
+        }
+        return count;
+    }
+
+    // returns the i-th child of node in label order
+    @Override
+    public int nthChild(int node, int i) {
+        int n = firstChild[node];
+        while (i-- > 0) {
+            n = nextSibling[n];
+        }
+        return n;
+    }
+
+    @Override
+    public int label(int node) {
+        return label[node];
+    }
+
+    public int depth(int node) {
+        return info[node] >>> DEPTH_SHIFT;
+    }
+
+    @Override
+    public boolean isTerminal(int node) {
+        return (info[node] & TERMINAL) != 0;
+    }
+
+    // true if a word of at least 4 letters can still be reached through node
+    @Override
+    public boolean hasLongWord(int node) {
+        return (info[node] & LONG) != 0;
+    }
+
+    @Override
+    public boolean isCompGoal(int node) {
+        ensureSolved(node);
+        return (info[node] & COMP_GOAL) != 0;
+    }
+
+    @Override
+    public int compGoalCount(int node) {
+        ensureSolved(node);
+        return count(node, COMP_GOAL, true);
+    }
+
+    // returns the i-th child of node designated a computer goal
+    @Override
+    public int compGoal(int node, int i) {
+        ensureSolved(node);
+        return nth(node, COMP_GOAL, true, i);
+    }
+
+    @Override
+    public int userGoalCount(int node) {
+        ensureSolved(node);
+        return count(node, COMP_GOAL, false);
+    }
+
+    // returns the i-th child of node designated a user goal
+    @Override
+    public int userGoal(int node, int i) {
+        ensureSolved(node);
+        return nth(node, COMP_GOAL, false, i);
+    }
+
+    @Override
+    public int maxLosingPathCount(int node) {
+        ensureSolved(node);
+        return count(node, MAX_LOSING, true);
+    }
+
+    // returns the i-th child of node on a path forcing maximal game length
+    @Override
+    public int maxLosingPath(int node, int i) {
+        ensureSolved(node);
+        return nth(node, MAX_LOSING, true, i);
+    }
+
+    // counts the children of node that have flag set, or that do not if set is false
+    private int count(int node, int flag, boolean set) {
+        int count = 0;
+        for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+            if (((info[n] & flag) != 0) == set) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int nth(int node, int flag, boolean set, int i) {
+        for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+            if (((info[n] & flag) != 0) == set && i-- == 0) {
+                return n;
+            }
+        }
+        return NONE;
+    }
+
+    // approximate bytes of heap held by the node arrays and the child index
+    public long heapBytes() {
+        long arrayHeader = 16;
+        long bytes = 8 * arrayHeader + (long) (label.length + firstChild.length + nextSibling.length + info.length) * 4
+                + (long) childBits.length * 8 + (long) (childBlock.length + childSlots.length) * 4;
+        if (depthOfUserGoal != null) {
+            bytes += 2 * arrayHeader + (long) (depthOfUserGoal.length + depthOfCompGoal.length) * 4;
+        }
+        bytes += arrayHeader + (long) shadowed.length * 4;
+        return bytes;
+    }
+
+    /**
+     * Solves the sub-tree rooted at node if this is a lazy trie and it has not been solved yet. Sub-trees
+     * solved by earlier calls are skipped, never re-solved, so threads reading them are not disturbed.
+     * Solving is serialized on a single lock; once node is solved, calls for it and everything below it
+     * return after one volatile read.
+     *
+     * Solving a node also rewrites the info[] words of its children, which may already be solved and read
+     * by other threads without the lock, to set their MAX_LOSING bits. That race is benign: every other bit
+     * of a child's word was last written when the child was solved, under the same lock, so it is written
+     * back unchanged, and int writes are atomic, so a reader sees the child's flags correctly whichever
+     * word it gets. The MAX_LOSING bits of a node's children are written only by solving that node, once,
+     * before its solved bit is set, and are only read by the maxLosingPath accessors after ensureSolved()
+     * has seen that bit, so they are read only once complete.
+     */
+    public void ensureSolved(int node) {
+        final AtomicIntegerArray solved = this.solved;
+        if (solved == null || isSolved(solved, node)) {
+            return;
+        }
+        synchronized (solved) {
+            postOrder(node, new Visitor() {
+                @Override
+                public void visit(int n) {
+                    if (!isSolved(solved, n)) {
+                        solveNode(n);
+                        solved.set(n >>> 5, solved.get(n >>> 5) | 1 << n); // only written under the lock
+                    }
+                }
+            });
+        }
+    }
+
+    private static boolean isSolved(AtomicIntegerArray solved, int node) {
+        return (solved.get(node >>> 5) & 1 << node) != 0;
+    }
+
+    void solveTrie(int node) {
+        postOrder(node, new Visitor() {
+            @Override
+            public void visit(int node) {
+                solveNode(node);
             }
+        });
+    }
 
-            maxDepth = (maxDepth > depth + word.length()) ? maxDepth : depth + word.length();
+    // as above, adding the time taken by the nodes at each depth to nanosByDepth. solves a whole depth at a
+    // time, deepest first, so the clock is read twice per depth rather than once per node; children are
+    // still solved before their parents, so the result is the same as solveTrie(node).
+    void solveTrie(int node, long[] nanosByDepth) {
+        int[] order = levelOrder(node);
+        int end = order.length;
+        while (end > 0) {
+            int depth = depth(order[end - 1]);
+            int i = end;
+            long start = System.nanoTime();
+            while (i > 0 && depth(order[i - 1]) == depth) {
+                solveNode(order[--i]);
+            }
+            nanosByDepth[depthIndex(depth)] += System.nanoTime() - start;
+            end = i;
         }
+    }
 
-        void addChild(Character c, Node node) {
-            children.put(c, node);
+    // the nodes of the sub-tree rooted at node in breadth-first order, i.e. by depth
+    private int[] levelOrder(int node) {
+        int[] order = new int[64];
+        order[0] = node;
+        int count = 1;
+        for (int i = 0; i < count; i++) {
+            for (int n = firstChild[order[i]]; n != NONE; n = nextSibling[n]) {
+                if (count == order.length) {
+                    order = Arrays.copyOf(order, count * 2);
+                }
+                order[count++] = n;
+            }
         }
+        return Arrays.copyOf(order, count);
+    }
+
+    // solve time summed by node depth; a fresh array for each solve
+    static long[] newDepthTimes() {
+        return new long[TIMED_DEPTHS];
     }
 
-    private void solveTrie(Node node) {
-        boolean isEvenNode = (node.depth % 2 == 0);
+    static int depthIndex(int depth) {
+        return Math.min(depth, TIMED_DEPTHS - 1);
+    }
+
+    interface Visitor {
+
+        void visit(int node);
+    }
 
-        if (node.children.isEmpty()) {
-            if (node.depth >= 4) // only count 4+ length strings as goals
-            {
-                node.compGoal = !isEvenNode;
+    // visits every node in the sub-tree rooted at node, children before their parent, in sibling order.
+    // walks with an explicit stack of ancestors so arbitrarily deep tries cannot overflow the call stack.
+    void postOrder(int node, Visitor visitor) {
+        int[] stack = new int[64];
+        int top = 0;
+        int n = node;
+        while (true) {
+            while (firstChild[n] != NONE) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = n;
+                n = firstChild[n];
+            }
+            visitor.visit(n);
+            while (n != node && nextSibling[n] == NONE) {
+                n = stack[--top];
+                visitor.visit(n);
+            }
+            if (n == node) {
+                return;
             }
+            n = nextSibling[n];
+        }
+    }
+
+    // sets whether this node is a computer (P2) or user (P1) goal; its children must already be solved.
+    // any earlier result for the node is discarded first, so a node can be solved again after its sub-tree changes.
+    void solveNode(int node) {
+        boolean isEvenNode = (depth(node) % 2 == 0);
+        setCompGoal(node, isEvenNode);
+        depthOfUserGoal[node] = -1;
+        depthOfCompGoal[node] = -1;
+        for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
+            info[n] &= ~MAX_LOSING; // leaves the child's other bits as they are; see ensureSolved()
+        }
+
+        if (firstChild[node] == NONE || (info[node] & (LONG | TERMINAL)) != LONG) {
+            // moving to a node that completes a word, or from which no word of 4+ letters can be reached,
+            // loses the game, so the node is a goal of the other player, whatever lies below it
+            setCompGoal(node, !isEvenNode);
 
             if (isEvenNode) {
-                node.depthOfUserGoal = node.depth;
+                depthOfUserGoal[node] = depth(node);
             } else {
-                node.depthOfCompGoal = node.depth;
+                depthOfCompGoal[node] = depth(node);
             }
 
             return;
         }
 
-        // node.compGoal = isEvenNode; // non-leaf initialization (done in constructor instead)
-
-        for (Node n : node.children.values()) {
-            solveTrie(n);
+        LosingPaths paths = new LosingPaths();
+        for (int n = firstChild[node]; n != NONE; n = nextSibling[n]) {
             if (isEvenNode) { // it is the user's turn
-                if (!n.compGoal) {
+                if (!isCompGoal(n)) {
                     // if there is a user goal to be chosen, this node is a user goal as well
                     // if no user goals can be chosen, this node is a computer goal
-                    node.compGoal = false;
-                    node.depthOfUserGoal = (node.depthOfUserGoal > n.depthOfUserGoal)
-                            ? node.depthOfUserGoal : n.depthOfUserGoal;
-                    node.userGoals.add(n);
+                    setCompGoal(node, false);
+                    depthOfUserGoal[node] = Math.max(depthOfUserGoal[node], depthOfUserGoal[n]);
                 } else {
-                    node.compGoals.add(n);
-
                     // if the user cannot choose a user goal, he chooses the (computer-winning) path(s) that forces the maximal game length
-                    // node.maxLosingPaths holds these path(s) and is updated here
-                    updateMaxLosingPaths(node, n, "compGoals");
+                    // the node's maxLosingPaths hold these path(s) and are updated here
+                    updateMaxLosingPaths(node, n, true, paths);
                 }
             } else { // it is the computer's turn
-                if (n.compGoal) {
+                if (isCompGoal(n)) {
                     // if there is a computer goal to be chosen, this node is a computer goal as well
                     // if no computer goals can be chosen, this node is a user goal
-                    node.compGoal = true;
-                    node.depthOfCompGoal = (node.depthOfCompGoal > n.depthOfCompGoal)
-                            ? node.depthOfCompGoal : n.depthOfCompGoal;
-                    node.compGoals.add(n);
+                    setCompGoal(node, true);
+                    depthOfCompGoal[node] = Math.max(depthOfCompGoal[node], depthOfCompGoal[n]);
                 } else {
-                    node.userGoals.add(n);
-
                     // if the computer cannot choose a computer goal, he chooses the (user-winning) path(s) that forces the maximal game length
-                    // node.maxLosingPaths holds these path(s) and is updated here
-                    updateMaxLosingPaths(node, n, "userGoals");
+                    // the node's maxLosingPaths hold these path(s) and are updated here
+                    updateMaxLosingPaths(node, n, false, paths);
                 }
             }
         }
     }
 
-    // update paths a losing player could take at node to force maximal game length
-    private void updateMaxLosingPaths(Node node, Node n, String type) {
-        boolean typeComp = type.equals("compGoals");
-        List<Node> goals = (typeComp) ? n.compGoals : n.userGoals;
+    private void setCompGoal(int node, boolean compGoal) {
+        if (compGoal) {
+            info[node] |= COMP_GOAL;
+        } else {
+            info[node] &= ~COMP_GOAL;
+        }
+    }
+
+    private int depthOfGoal(int n, boolean typeComp) {
+        return (typeComp) ? depthOfCompGoal[n] : depthOfUserGoal[n];
+    }
+
+    // summary of the goals of the paths currently in a node's maxLosingPaths: how many goals each path
+    // has (the same for all of them) and the lowest and highest depthOfGoal among those goals.
+    // comparing against it replaces the pairwise comparison of every old goal with every new one.
+    private static class LosingPaths {
+
+        boolean empty = true;
+        int first = NONE; // earliest child in the set; the others follow it among the siblings
+        int goals;
+        int minDepthOfGoal;
+        int maxDepthOfGoal;
+
+        void set(int first, int goals, int minDepthOfGoal, int maxDepthOfGoal) {
+            empty = false;
+            this.first = first;
+            this.goals = goals;
+            this.minDepthOfGoal = minDepthOfGoal;
+            this.maxDepthOfGoal = maxDepthOfGoal;
+        }
+
+        void add(int minDepthOfGoal, int maxDepthOfGoal) {
+            this.minDepthOfGoal = Math.min(this.minDepthOfGoal, minDepthOfGoal);
+            this.maxDepthOfGoal = Math.max(this.maxDepthOfGoal, maxDepthOfGoal);
+        }
+    }
 
-        if (node.maxLosingPaths.isEmpty()) {
-            node.maxLosingPaths.add(n);
-            updateDepthOfGoal(node, n, type);
-        } else if (!goals.isEmpty()) {
-            int numGoalsOfChild = (typeComp)
-                    ? node.maxLosingPaths.get(0).compGoals.size() : node.maxLosingPaths.get(0).userGoals.size();
+    // update paths a losing player could take at node to force maximal game length
+    private void updateMaxLosingPaths(int node, int n, boolean typeComp, LosingPaths paths) {
+        int goals = 0;
+        int minDepthOfGoal = Integer.MAX_VALUE; // of n's goals; an empty set of goals compares as always shorter
+        int maxDepthOfGoal = Integer.MIN_VALUE; // and always longer
+        for (int k = firstChild[n]; k != NONE; k = nextSibling[k]) {
+            if (isCompGoal(k) == typeComp) {
+                goals++;
+                minDepthOfGoal = Math.min(minDepthOfGoal, depthOfGoal(k, typeComp));
+                maxDepthOfGoal = Math.max(maxDepthOfGoal, depthOfGoal(k, typeComp));
+            }
+        }
 
-            int nodeDepthOfGoal = (typeComp) ? node.depthOfCompGoal : node.depthOfUserGoal;
-            int nDepthOfGoal = (typeComp) ? n.depthOfCompGoal : n.depthOfUserGoal;
+        if (paths.empty) {
+            replaceMaxLosingPaths(node, n, typeComp, paths);
+            paths.set(n, goals, minDepthOfGoal, maxDepthOfGoal);
+        } else if (goals != 0) {
+            int nodeDepthOfGoal = depthOfGoal(node, typeComp);
+            int nDepthOfGoal = depthOfGoal(n, typeComp);
 
-            if (goals.size() == numGoalsOfChild) {
+            if (goals == paths.goals) {
                 // enter this branch if another node has an equal number of computer-winning paths
                 // if depth of other node is bigger, replace old node. if equal, join with old node. if smaller, ignore.
                 if (nDepthOfGoal > nodeDepthOfGoal) {
-                    node.maxLosingPaths.clear();
-                    node.maxLosingPaths.add(n);
-                    updateDepthOfGoal(node, n, type);
+                    replaceMaxLosingPaths(node, n, typeComp, paths);
+                    paths.set(n, goals, minDepthOfGoal, maxDepthOfGoal);
                 } else if (nDepthOfGoal == nodeDepthOfGoal) {
-                    node.maxLosingPaths.add(n);
+                    info[n] |= MAX_LOSING;
+                    paths.add(minDepthOfGoal, maxDepthOfGoal);
                 }
-            } else if (goals.size() > numGoalsOfChild) {
-                // n has a larger number of computer-winning paths. replace old paths if n's paths are all longer than old paths.
-                if (allLongerPaths(n, node.maxLosingPaths, type)) {
-                    node.maxLosingPaths.clear();
-                    node.maxLosingPaths.add(n);
-                    updateDepthOfGoal(node, n, type);
+            } else if (goals > paths.goals) {
+                // n has a larger number of computer-winning paths. replace old paths if n's paths are all longer than old paths,
+                // i.e. its shortest goal is at least as deep as the deepest old goal
+                if (paths.maxDepthOfGoal <= minDepthOfGoal) {
+                    replaceMaxLosingPaths(node, n, typeComp, paths);
+                    paths.set(n, goals, minDepthOfGoal, maxDepthOfGoal);
                 }
             } else {
-                // another node has a smaller number of computer-winning paths. 
-                // replace old node if at least one of other node's paths is longer than one in old node
-                if (!allLongerPaths(node.maxLosingPaths, n, type)) {
-                    node.maxLosingPaths.clear();
-                    node.maxLosingPaths.add(n);
-                    updateDepthOfGoal(node, n, type);
+                // another node has a smaller number of computer-winning paths.
+                // replace old node if at least one of other node's paths is longer than one in old node,
+                // i.e. its deepest goal is deeper than the shallowest old goal
+                if (maxDepthOfGoal > paths.minDepthOfGoal) {
+                    replaceMaxLosingPaths(node, n, typeComp, paths);
+                    paths.set(n, goals, minDepthOfGoal, maxDepthOfGoal);
                 }
             }
         }
     }
 
-    private void updateDepthOfGoal(Node node, Node n, String type) {
-        if (type.equals("compGoals")) {
-            node.depthOfCompGoal = n.depthOfCompGoal;
-        } else {
-            node.depthOfUserGoal = n.depthOfUserGoal;
+    private void replaceMaxLosingPaths(int node, int n, boolean typeComp, LosingPaths paths) {
+        for (int k = paths.first; k != NONE && k != n; k = nextSibling[k]) {
+            info[k] &= ~MAX_LOSING;
         }
+        info[n] |= MAX_LOSING;
+        updateDepthOfGoal(node, n, typeComp);
     }
 
-    // returns true if the goals of n have a greater than or equal depthOfGoal then the goals of every node in list
-    private boolean allLongerPaths(Node n, List<Node> list, String type) {
-        boolean typeComp = type.equals("compGoals");
-
-        for (Node k : list) {
-            List<Node> kGoalList = (typeComp) ? k.compGoals : k.userGoals;
-            List<Node> nGoalList = (typeComp) ? n.compGoals : n.userGoals;
-            for (Node kGoal : kGoalList) {
-                for (Node nGoal : nGoalList) {
-                    int kGoalDepthOfGoal = (typeComp) ? kGoal.depthOfCompGoal : kGoal.depthOfUserGoal;
-                    int nGoalDepthOfGoal = (typeComp) ? nGoal.depthOfCompGoal : nGoal.depthOfUserGoal;
-                    if (kGoalDepthOfGoal > nGoalDepthOfGoal) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
-    }
-
-    // returns true if the goals of every node in list have a greater than or equal depthOfGoal than the goals of n
-    private boolean allLongerPaths(List<Node> list, Node n, String type) {
-        boolean typeComp = type.equals("compGoals");
-        for (Node k : list) {
-            List<Node> kGoalList = (typeComp) ? k.compGoals : k.userGoals;
-            List<Node> nGoalList = (typeComp) ? n.compGoals : n.userGoals;
-            for (Node kGoal : kGoalList) {
-                for (Node nGoal : nGoalList) {
-                    int nGoalDepthOfGoal = (typeComp) ? nGoal.depthOfCompGoal : nGoal.depthOfUserGoal;
-                    int kGoalDepthOfGoal = (typeComp) ? kGoal.depthOfCompGoal : kGoal.depthOfUserGoal;
-                    if (nGoalDepthOfGoal > kGoalDepthOfGoal) {
-                        return false;
-                    }
-                }
-            }
+    private void updateDepthOfGoal(int node, int n, boolean typeComp) {
+        if (typeComp) {
+            depthOfCompGoal[node] = depthOfCompGoal[n];
+        } else {
+            depthOfUserGoal[node] = depthOfUserGoal[n];
         }
-        return true;
     }
 }
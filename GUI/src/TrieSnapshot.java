@@ -0,0 +1,152 @@
+package ghost;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a solved Trie, written next to its (first) dictionary so
+ * later launches can map it instead of re-reading the word lists and re-solving.
+ *
+ * Layout (little-endian): a 32 byte header of magic, version, total dictionary
+ * length, combined CRC32 of the dictionaries, node count and length of the
+ * shadowed words, then the firstChild, nextSibling, info, depthOfUserGoal,
+ * depthOfCompGoal and label (code point) arrays back to back, then the
+ * shadowed words. The child index is not stored; it is built from the sibling
+ * lists when the snapshot is read. A snapshot
+ * whose version or dictionary checksum does not match is ignored and rebuilt.
+ */
+public class TrieSnapshot {
+
+    static final int MAGIC = 0x47485354; // "GHST"
+    static final int VERSION = 4;
+    static final String SUFFIX = ".snapshot";
+
+    private static final int HEADER_BYTES = 32;
+
+    // returns the solved trie for dictionaries, from their snapshot if it is up to date
+    public static Trie open(String... dictionaries) throws IOException {
+        return open(new DictionaryLoader(), dictionaries);
+    }
+
+    // as above; loader gathers the load statistics if the dictionaries have to be read
+    public static Trie open(DictionaryLoader loader, String... dictionaries) throws IOException {
+        long checksum = 0;
+        long length = 0;
+        for (String dictionary : dictionaries) {
+            FileChannel channel = FileChannel.open(Paths.get(dictionary), StandardOpenOption.READ);
+            try {
+                length += channel.size();
+                checksum = checksum * 31 + checksum(channel);
+            } finally {
+                channel.close();
+            }
+        }
+
+        Path snapshot = Paths.get(dictionaries[0] + SUFFIX);
+        try {
+            long start = System.nanoTime();
+            Trie trie = read(snapshot, length, checksum);
+            if (trie != null) {
+                Metrics.get().mapped(bytes(trie.size, trie.shadowedLength), System.nanoTime() - start);
+                Metrics.get().built(trie);
+                return trie;
+            }
+        } catch (IOException x) {
+            // unreadable snapshot, rebuild it below
+        }
+
+        long words = loader.words();
+        long bytes = loader.bytes();
+        long nanos = loader.nanos();
+        Trie trie = new Trie(loader, dictionaries);
+        Metrics.get().loaded(loader.words() - words, loader.bytes() - bytes, loader.nanos() - nanos);
+        Metrics.get().built(trie);
+        try {
+            write(trie, snapshot, length, checksum);
+        } catch (IOException x) {
+            System.out.println("Could not write snapshot " + snapshot + ": " + x.getMessage());
+        }
+        return trie;
+    }
+
+    static long checksum(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        return crc.getValue();
+    }
+
+    // returns null if the snapshot is missing or was not made from this dictionary
+    static Trie read(Path snapshot, long dictionaryLength, long dictionaryChecksum) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                    || buf.getLong() != dictionaryLength || buf.getLong() != dictionaryChecksum) {
+                return null;
+            }
+            int size = buf.getInt();
+            int shadowedLength = buf.getInt();
+            if (channel.size() != bytes(size, shadowedLength)) {
+                return null;
+            }
+
+            Trie trie = new Trie(size);
+            buf.position(HEADER_BYTES);
+            for (int[] array : intArrays(trie)) {
+                buf.asIntBuffer().get(array);
+                buf.position(buf.position() + size * 4);
+            }
+            trie.shadowed = new int[shadowedLength];
+            trie.shadowedLength = shadowedLength;
+            buf.asIntBuffer().get(trie.shadowed);
+            trie.index();
+            return trie;
+        } finally {
+            channel.close();
+        }
+    }
+
+    // writes to a temporary file first so readers never map a half-written snapshot
+    static void write(Trie trie, Path snapshot, long dictionaryLength, long dictionaryChecksum) throws IOException {
+        trie.ensureSolved(trie.root());
+        Path tmp = Paths.get(snapshot + ".tmp");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            int size = trie.size;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes(size, trie.shadowedLength));
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(dictionaryLength).putLong(dictionaryChecksum).putInt(size)
+                    .putInt(trie.shadowedLength);
+            for (int[] array : intArrays(trie)) {
+                buf.asIntBuffer().put(array, 0, size);
+                buf.position(buf.position() + size * 4);
+            }
+            buf.asIntBuffer().put(trie.shadowed, 0, trie.shadowedLength);
+            buf.force();
+        } finally {
+            channel.close();
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int[][] intArrays(Trie trie) {
+        return new int[][]{trie.firstChild, trie.nextSibling, trie.info, trie.depthOfUserGoal, trie.depthOfCompGoal,
+                trie.label};
+    }
+
+    private static long bytes(int size, int shadowedLength) {
+        return HEADER_BYTES + (long) size * 6 * 4 + (long) shadowedLength * 4;
+    }
+}
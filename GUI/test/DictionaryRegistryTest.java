@@ -0,0 +1,185 @@
+package ghost;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Round trips of TrieSnapshot and the bookkeeping of DictionaryRegistry. A
+ * snapshot read back must give the same nodes, solution and shadowed words as
+ * the trie it was written from, and is rebuilt once its dictionary changes.
+ * The registry must hand out one trie per dictionary, count hits, misses and
+ * loads, evict over its budget, load once for concurrent requests and never
+ * cache a failed load.
+ */
+public class DictionaryRegistryTest {
+
+    private static final int DICTIONARIES = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotRoundTrip() throws IOException {
+        Random random = new Random(16);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            String where = "dictionary " + d;
+            File file = folder.newFile();
+            Files.write(file.toPath(), randomWords(random, 1 + random.nextInt(300)), StandardCharsets.UTF_8);
+            DictionaryLoader loader = new DictionaryLoader();
+            Trie built = TrieSnapshot.open(loader, file.getPath());
+            built.ensureSolved(built.root());
+            long words = loader.words();
+
+            Trie read = TrieSnapshot.open(loader, file.getPath());
+            assertEquals(where + ", read the dictionary again", words, loader.words());
+            assertSameTrie(where, built, read);
+
+            Files.write(file.toPath(), randomWords(random, 1 + random.nextInt(300)), StandardCharsets.UTF_8);
+            Trie rebuilt = TrieSnapshot.open(loader, file.getPath());
+            assertTrue(where + ", kept a stale snapshot", loader.words() > words);
+            Trie fresh = new Trie(file.getPath());
+            fresh.ensureSolved(fresh.root());
+            rebuilt.ensureSolved(rebuilt.root());
+            assertSameTrie(where + ", rebuilt", fresh, rebuilt);
+        }
+    }
+
+    @Test
+    public void countsAndEvicts() throws IOException {
+        String a = dictionary("able", "abode", "ghost");
+        String b = dictionary("ghoul", "gherkin");
+        DictionaryRegistry registry = new DictionaryRegistry(Long.MAX_VALUE);
+        SolvedTrie trie = registry.get(a);
+        assertSame(trie, registry.get(a));
+        assertSame(trie, registry.get(new File(a).getParent() + "/./" + new File(a).getName()));
+        assertEquals(2, registry.hits());
+        assertEquals(1, registry.misses());
+        assertEquals(1, registry.loads());
+        assertEquals(trie.heapBytes(), registry.bytes());
+
+        registry = new DictionaryRegistry(1); // only the trie loaded last fits
+        SolvedTrie first = registry.get(a);
+        registry.get(b);
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.evictions());
+        assertTrue(first != registry.get(a));
+        assertEquals(3, registry.loads());
+        assertEquals(2, registry.evictions());
+
+        assertTrue(registry.invalidate(a));
+        assertFalse(registry.invalidate(a));
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.bytes());
+    }
+
+    @Test
+    public void doesNotCacheFailedLoad() throws IOException {
+        String missing = new File(folder.getRoot(), "missing.txt").getPath();
+        DictionaryRegistry registry = new DictionaryRegistry(Long.MAX_VALUE);
+        for (int i = 1; i <= 2; i++) {
+            try {
+                registry.get(missing);
+                fail("loaded a missing dictionary");
+            } catch (IOException x) {
+                // expected
+            }
+            assertEquals(i, registry.loads());
+            assertEquals(0, registry.size());
+        }
+    }
+
+    @Test
+    public void loadsOnceForConcurrentRequests() throws Exception {
+        final String dictionary = dictionary(randomWords(new Random(17), 2000).toArray(new String[0]));
+        final DictionaryRegistry registry = new DictionaryRegistry(Long.MAX_VALUE);
+        final CountDownLatch start = new CountDownLatch(1);
+        final SolvedTrie[] tries = new SolvedTrie[8];
+        final Exception[] failures = new Exception[tries.length];
+        Thread[] threads = new Thread[tries.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int t = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        tries[t] = registry.get(dictionary);
+                    } catch (Exception x) {
+                        failures[t] = x;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < tries.length; i++) {
+            if (failures[i] != null) {
+                throw failures[i];
+            }
+            assertSame(tries[0], tries[i]);
+        }
+        assertEquals(1, registry.loads());
+        assertEquals(tries.length, registry.hits() + registry.misses());
+    }
+
+    private String dictionary(String... words) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Arrays.asList(words), StandardCharsets.UTF_8);
+        return file.getPath();
+    }
+
+    // words over a-e and a letter outside the Basic Multilingual Plane, so labels need full code points
+    private static List<String> randomWords(Random random, int count) {
+        int[] letters = {'a', 'b', 'c', 'd', 'e', 0x1F47B};
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            int[] word = new int[1 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = letters[random.nextInt(letters.length)];
+            }
+            words.add(new String(word, 0, word.length));
+        }
+        return words;
+    }
+
+    private static void assertSameTrie(String where, Trie expected, Trie actual) {
+        assertEquals(where, expected.size, actual.size);
+        int size = expected.size;
+        assertArrayEquals(where, Arrays.copyOf(expected.label, size), Arrays.copyOf(actual.label, size));
+        assertArrayEquals(where, Arrays.copyOf(expected.firstChild, size), Arrays.copyOf(actual.firstChild, size));
+        assertArrayEquals(where, Arrays.copyOf(expected.nextSibling, size), Arrays.copyOf(actual.nextSibling, size));
+        assertArrayEquals(where, Arrays.copyOf(expected.info, size), Arrays.copyOf(actual.info, size));
+        assertArrayEquals(where, Arrays.copyOf(expected.depthOfUserGoal, size),
+                Arrays.copyOf(actual.depthOfUserGoal, size));
+        assertArrayEquals(where, Arrays.copyOf(expected.depthOfCompGoal, size),
+                Arrays.copyOf(actual.depthOfCompGoal, size));
+        assertArrayEquals(where, Arrays.copyOf(expected.shadowed, expected.shadowedLength),
+                Arrays.copyOf(actual.shadowed, actual.shadowedLength));
+        for (int node = 0; node < size; node++) {
+            for (int i = 0; i < expected.childCount(node); i++) {
+                assertEquals(where + ", child " + i + " of node " + node, expected.nthChild(node, i),
+                        actual.nthChild(node, i));
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ghost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Round trips of GameJournal: games recorded are replayed with the same
+ * letters, winner and win status, in order, across segment rotations, for a
+ * record that exactly fills a batch and for games longer than a short could
+ * count. A game too long for a batch is rejected without disturbing the
+ * games around it.
+ */
+public class GameJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GameState state = new GameState(new Trie(), 0);
+
+    @Test
+    public void replaysAcrossSegments() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Random random = new Random(25);
+        List<Recorded> games = new ArrayList<Recorded>();
+        GameJournal journal = new GameJournal(directory, 1); // every write fills a segment
+        for (int i = 0; i < 200; i++) {
+            Recorded game = randomGame(random, 1 + random.nextInt(20));
+            record(journal, game);
+            games.add(game);
+            if (i % 10 == 9) {
+                journal.flush();
+            }
+        }
+        journal.close();
+        assertTrue(directory.toFile().list().length > 10);
+
+        // a journal reopened carries on after the last segment
+        journal = new GameJournal(directory, 1);
+        Recorded game = randomGame(random, 5);
+        record(journal, game);
+        games.add(game);
+        journal.close();
+        assertEquals(games, replay(directory));
+    }
+
+    @Test
+    public void replaysRecordFillingBatch() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Random random = new Random(26);
+        List<Recorded> games = new ArrayList<Recorded>();
+        GameJournal journal = new GameJournal(directory, Long.MAX_VALUE);
+        games.add(randomGame(random, 3));
+        games.add(randomGame(random, GameJournal.MAX_CHARS)); // does not fit behind the first
+        games.add(randomGame(random, 3)); // does not fit behind the second
+        games.add(randomGame(random, Short.MAX_VALUE + 1));
+        for (Recorded game : games) {
+            record(journal, game);
+        }
+        journal.close();
+        assertEquals(games, replay(directory));
+    }
+
+    @Test
+    public void replaysSupplementaryLetters() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        GameJournal journal = new GameJournal(directory, Long.MAX_VALUE);
+        Recorded game = new Recorded(new int[] {'a', 0x1F47B, 'b', 0x10437}, GameState.COMPUTER,
+                GameState.INVALID_WORD);
+        record(journal, game);
+        journal.close();
+        assertEquals(Arrays.asList(game), replay(directory));
+    }
+
+    @Test(timeout = 60000) // such a game once never fitted, and recording it spun forever
+    public void rejectsGameLongerThanBatch() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Random random = new Random(27);
+        List<Recorded> games = new ArrayList<Recorded>();
+        GameJournal journal = new GameJournal(directory, Long.MAX_VALUE);
+        games.add(randomGame(random, 3));
+        record(journal, games.get(0));
+        try {
+            record(journal, randomGame(random, GameJournal.MAX_CHARS + 1));
+            fail("recorded a game longer than a batch");
+        } catch (IllegalArgumentException x) {
+            // expected
+        }
+        int[] letters = new int[GameJournal.MAX_CHARS / 2 + 1]; // fits in letters, not in chars
+        Arrays.fill(letters, 0x1F47B);
+        try {
+            record(journal, new Recorded(letters, GameState.USER, GameState.WORD_COMPLETED));
+            fail("recorded a game longer than a batch");
+        } catch (IllegalArgumentException x) {
+            // expected
+        }
+        games.add(randomGame(random, 3));
+        record(journal, games.get(1));
+        journal.close();
+        assertEquals(games, replay(directory));
+    }
+
+    // a game of the given number of letters in a-z, won by either player
+    private static Recorded randomGame(Random random, int length) {
+        int[] letters = new int[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = 'a' + random.nextInt(26);
+        }
+        return new Recorded(letters, random.nextInt(2), random.nextInt(3));
+    }
+
+    // records game, ending it with its last letter
+    private void record(GameJournal journal, Recorded game) {
+        int length = game.letters.length;
+        boolean lastAdded = game.winStatus == GameState.WORD_COMPLETED;
+        state.word = Arrays.copyOf(game.letters, Math.max(1, length));
+        state.length = lastAdded ? length : length - 1;
+        state.winner = game.winner;
+        state.winStatus = game.winStatus;
+        journal.record(state, game.letters[length - 1]);
+    }
+
+    private static List<Recorded> replay(Path directory) throws IOException {
+        final List<Recorded> games = new ArrayList<Recorded>();
+        long count = GameJournal.replay(directory, new GameJournal.Visitor() {
+            @Override
+            public void game(int[] letters, int length, int winner, int winStatus) {
+                games.add(new Recorded(Arrays.copyOf(letters, length), winner, winStatus));
+            }
+        });
+        assertEquals(games.size(), count);
+        return games;
+    }
+
+    private static final class Recorded {
+        final int[] letters;
+        final int winner;
+        final int winStatus;
+
+        Recorded(int[] letters, int winner, int winStatus) {
+            this.letters = letters;
+            this.winner = winner;
+            this.winStatus = winStatus;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            Recorded g = (Recorded) o;
+            return Arrays.equals(letters, g.letters) && winner == g.winner && winStatus == g.winStatus;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(letters);
+        }
+
+        @Override
+        public String toString() {
+            return letters.length + " letters, winner " + winner + ", status " + winStatus;
+        }
+    }
+}
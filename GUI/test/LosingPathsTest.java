@@ -0,0 +1,217 @@
+package ghost;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Differential test of the maxLosingPaths comparison: Trie.solveNode compares a
+ * candidate path against a LosingPaths summary of the current ones, while the
+ * reference solver below keeps the algorithm it replaced, comparing every goal
+ * of every current path with every goal of the candidate (allLongerPaths).
+ * Both are run over random dictionaries and must agree on the goal flags,
+ * maxLosingPaths and goal depths of every node, which are all that
+ * Engine.bestMove reads, so the move choices are identical.
+ */
+public class LosingPathsTest {
+
+    private static final int DICTIONARIES = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameMoveChoicesAsAllLongerPaths() throws IOException {
+        Random random = new Random(8);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            List<String> words = randomWords(random, 2 + random.nextInt(5), 1 + random.nextInt(400));
+            if (random.nextBoolean()) {
+                Collections.sort(words);
+            }
+            File file = folder.newFile();
+            Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+            Trie trie = new Trie(file.getPath());
+            Reference reference = new Reference(trie);
+            for (int node = 0; node < trie.size; node++) {
+                String where = "dictionary " + d + " " + words + ", node " + node;
+                assertEquals(where, reference.compGoal[node], trie.isCompGoal(node));
+                assertEquals(where, reference.maxLosing[node], (trie.info[node] & Trie.MAX_LOSING) != 0);
+                assertEquals(where, reference.depthOfUserGoal[node], trie.depthOfUserGoal[node]);
+                assertEquals(where, reference.depthOfCompGoal[node], trie.depthOfCompGoal[node]);
+            }
+        }
+    }
+
+    private static List<String> randomWords(Random random, int letters, int count) {
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            char[] word = new char[1 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(letters));
+            }
+            words.add(new String(word));
+        }
+        return words;
+    }
+
+    // solves the structure of a built trie again, into its own arrays, with the pairwise comparison
+    private static class Reference {
+
+        final Trie trie;
+        final boolean[] compGoal;
+        final boolean[] maxLosing;
+        final int[] depthOfUserGoal;
+        final int[] depthOfCompGoal;
+
+        Reference(Trie trie) {
+            this.trie = trie;
+            compGoal = new boolean[trie.size];
+            maxLosing = new boolean[trie.size];
+            depthOfUserGoal = new int[trie.size];
+            depthOfCompGoal = new int[trie.size];
+            trie.postOrder(trie.root(), new Trie.Visitor() {
+                @Override
+                public void visit(int node) {
+                    solveNode(node);
+                }
+            });
+        }
+
+        void solveNode(int node) {
+            int depth = trie.depth(node);
+            boolean isEvenNode = (depth % 2 == 0);
+            compGoal[node] = isEvenNode;
+            depthOfUserGoal[node] = -1;
+            depthOfCompGoal[node] = -1;
+
+            if (trie.firstChild[node] == Trie.NONE || (trie.info[node] & (Trie.LONG | Trie.TERMINAL)) != Trie.LONG) {
+                compGoal[node] = !isEvenNode;
+                if (isEvenNode) {
+                    depthOfUserGoal[node] = depth;
+                } else {
+                    depthOfCompGoal[node] = depth;
+                }
+                return;
+            }
+
+            for (int n = trie.firstChild[node]; n != Trie.NONE; n = trie.nextSibling[n]) {
+                if (isEvenNode) {
+                    if (!compGoal[n]) {
+                        compGoal[node] = false;
+                        depthOfUserGoal[node] = Math.max(depthOfUserGoal[node], depthOfUserGoal[n]);
+                    } else {
+                        updateMaxLosingPaths(node, n, true);
+                    }
+                } else {
+                    if (compGoal[n]) {
+                        compGoal[node] = true;
+                        depthOfCompGoal[node] = Math.max(depthOfCompGoal[node], depthOfCompGoal[n]);
+                    } else {
+                        updateMaxLosingPaths(node, n, false);
+                    }
+                }
+            }
+        }
+
+        private void updateMaxLosingPaths(int node, int n, boolean typeComp) {
+            int first = Trie.NONE;
+            for (int k = trie.firstChild[node]; k != Trie.NONE && first == Trie.NONE; k = trie.nextSibling[k]) {
+                if (maxLosing[k]) {
+                    first = k;
+                }
+            }
+            int goals = goalCount(n, typeComp);
+
+            if (first == Trie.NONE) {
+                maxLosing[n] = true;
+                updateDepthOfGoal(node, n, typeComp);
+            } else if (goals != 0) {
+                int numGoalsOfChild = goalCount(first, typeComp);
+                int nodeDepthOfGoal = depthOfGoal(node, typeComp);
+                int nDepthOfGoal = depthOfGoal(n, typeComp);
+
+                if (goals == numGoalsOfChild) {
+                    if (nDepthOfGoal > nodeDepthOfGoal) {
+                        replaceMaxLosingPaths(node, n, typeComp);
+                    } else if (nDepthOfGoal == nodeDepthOfGoal) {
+                        maxLosing[n] = true;
+                    }
+                } else if (goals > numGoalsOfChild) {
+                    if (allLongerPaths(node, n, typeComp, true)) {
+                        replaceMaxLosingPaths(node, n, typeComp);
+                    }
+                } else {
+                    if (!allLongerPaths(node, n, typeComp, false)) {
+                        replaceMaxLosingPaths(node, n, typeComp);
+                    }
+                }
+            }
+        }
+
+        private int goalCount(int n, boolean typeComp) {
+            int count = 0;
+            for (int k = trie.firstChild[n]; k != Trie.NONE; k = trie.nextSibling[k]) {
+                if (compGoal[k] == typeComp) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private int depthOfGoal(int n, boolean typeComp) {
+            return (typeComp) ? depthOfCompGoal[n] : depthOfUserGoal[n];
+        }
+
+        private void replaceMaxLosingPaths(int node, int n, boolean typeComp) {
+            for (int k = trie.firstChild[node]; k != Trie.NONE; k = trie.nextSibling[k]) {
+                maxLosing[k] = false;
+            }
+            maxLosing[n] = true;
+            updateDepthOfGoal(node, n, typeComp);
+        }
+
+        private void updateDepthOfGoal(int node, int n, boolean typeComp) {
+            if (typeComp) {
+                depthOfCompGoal[node] = depthOfCompGoal[n];
+            } else {
+                depthOfUserGoal[node] = depthOfUserGoal[n];
+            }
+        }
+
+        // true if the goals of n are all at least as deep as (nLonger) or no deeper than (!nLonger) the goals
+        // of every node in the maxLosingPaths of node
+        private boolean allLongerPaths(int node, int n, boolean typeComp, boolean nLonger) {
+            for (int k = trie.firstChild[node]; k != Trie.NONE; k = trie.nextSibling[k]) {
+                if (!maxLosing[k]) {
+                    continue;
+                }
+                for (int kGoal = trie.firstChild[k]; kGoal != Trie.NONE; kGoal = trie.nextSibling[kGoal]) {
+                    if (compGoal[kGoal] != typeComp) {
+                        continue;
+                    }
+                    for (int nGoal = trie.firstChild[n]; nGoal != Trie.NONE; nGoal = trie.nextSibling[nGoal]) {
+                        if (compGoal[nGoal] != typeComp) {
+                            continue;
+                        }
+                        int kDepth = depthOfGoal(kGoal, typeComp);
+                        int nDepth = depthOfGoal(nGoal, typeComp);
+                        if ((nLonger) ? kDepth > nDepth : nDepth > kDepth) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
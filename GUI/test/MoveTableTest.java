@@ -0,0 +1,134 @@
+package ghost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * MoveTable against the engine it flattens: over random dictionaries, some
+ * with a letter outside the Basic Multilingual Plane, the table must have an
+ * entry for exactly the prefixes at which the game goes on, each holding the
+ * letters Engine.isBestMove accepts there. Seeded games, with the user playing
+ * random letters, must only reach prefixes whose entry holds the engine's
+ * move, and end at a prefix with no entry.
+ */
+public class MoveTableTest {
+
+    private static final int DICTIONARIES = 200;
+    private static final int GAMES = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameMovesAsEngine() throws IOException {
+        Random random = new Random(17);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            int[] alphabet = alphabet(random, 2 + random.nextInt(4));
+            File file = folder.newFile();
+            List<String> words = randomWords(random, alphabet, 1 + random.nextInt(300));
+            Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+            Trie trie = new Trie(file.getPath());
+            GameTrie solved = random.nextBoolean() ? trie.freeze() : trie;
+            Path path = folder.newFile().toPath();
+            MoveTable.write(solved, path);
+            MoveTable table = MoveTable.open(path);
+            Engine engine = new Engine(solved);
+
+            int prefixes = checkPrefixes(engine, table, alphabet, new int[0], "dictionary " + d);
+            assertEquals("dictionary " + d, prefixes, table.size());
+
+            for (int g = 0; g < GAMES; g++) {
+                String where = "dictionary " + d + ", game " + g;
+                GameState state = engine.newGame(random.nextLong());
+                int c;
+                do {
+                    String moves = table.moves(state.word());
+                    c = (state.mover() == GameState.COMPUTER) ? engine.bestMove(state)
+                            : Strategy.RANDOM.move(engine, state);
+                    if (state.mover() == GameState.COMPUTER) {
+                        assertTrue(where + " at " + state.word(),
+                                moves.indexOf(new String(Character.toChars(c))) >= 0);
+                    }
+                } while (engine.apply(state, c) == GameState.PLAYING);
+                String end = (state.winStatus() == GameState.WORD_COMPLETED) ? state.word()
+                        : state.word() + new String(Character.toChars(c));
+                assertEquals(where + " ended at " + end, -1, table.find(end));
+            }
+        }
+    }
+
+    // checks the entries for prefix, at which the game goes on, and every prefix one letter longer; returns
+    // how many of them the game goes on at
+    private static int checkPrefixes(Engine engine, MoveTable table, int[] alphabet, int[] prefix, String where) {
+        GameState state = engine.newGame(0);
+        for (int c : prefix) {
+            engine.apply(state, c);
+        }
+        String word = state.word();
+        int entry = table.find(word);
+        assertTrue(where + ", no entry for " + word, entry >= 0);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int c : alphabet) {
+            if (engine.isBestMove(state, c)) {
+                expected.add(c);
+            }
+        }
+        int[] moves = new int[table.moveCount(entry)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = table.move(entry, i);
+        }
+        assertEquals(where + ", moves at " + word, expected.toString(), Arrays.toString(moves));
+
+        int prefixes = 1;
+        GameTrie trie = engine.trie();
+        for (int c : alphabet) {
+            int[] longer = Arrays.copyOf(prefix, prefix.length + 1);
+            longer[prefix.length] = c;
+            int child = trie.child(state.node(), c);
+            if (child != Trie.NONE && trie.hasLongWord(child) && !trie.isTerminal(child)) {
+                prefixes += checkPrefixes(engine, table, alphabet, longer, where);
+            } else {
+                assertEquals(where + ", entry where the game is over", -1,
+                        table.find(new String(longer, 0, longer.length)));
+            }
+        }
+        return prefixes;
+    }
+
+    // count letters in increasing order, the last of them outside the Basic Multilingual Plane half the time
+    private static int[] alphabet(Random random, int count) {
+        int[] letters = new int[count];
+        for (int i = 0; i < count; i++) {
+            letters[i] = 'a' + i;
+        }
+        if (random.nextBoolean()) {
+            letters[count - 1] = 0x1F47B;
+        }
+        return letters;
+    }
+
+    private static List<String> randomWords(Random random, int[] alphabet, int count) {
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            int[] word = new int[1 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            words.add(new String(word, 0, word.length));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,119 @@
+package ghost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * NPlayerSolution over random dictionaries. With two players the same player
+ * must win from every node at which the game goes on as in the two-player
+ * solution of the trie. With three to five players every such node must have
+ * a best move, and no player may pick a move it loses with while one it
+ * survives exists.
+ */
+public class NPlayerSolutionTest {
+
+    private static final int DICTIONARIES = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void twoPlayersSameWinner() throws IOException {
+        Random random = new Random(24);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            SolvedTrie trie = randomTrie(random).freeze();
+            NPlayerSolution solution = new NPlayerSolution(trie, 2);
+            for (int node = 0; node < trie.size(); node++) {
+                if (isOver(trie, node)) {
+                    continue;
+                }
+                int winner = trie.isCompGoal(node) ? GameState.COMPUTER : GameState.USER;
+                assertEquals("dictionary " + d + ", node " + node, 1 - winner, solution.loser(node));
+            }
+        }
+    }
+
+    @Test
+    public void survivesWhenItCan() throws IOException {
+        Random random = new Random(25);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            SolvedTrie trie = randomTrie(random).freeze();
+            List<Integer> depths = depths(trie);
+            for (int players = 3; players <= 5; players++) {
+                NPlayerSolution solution = new NPlayerSolution(trie, players);
+                for (int node = 0; node < trie.size(); node++) {
+                    if (isOver(trie, node)) {
+                        continue;
+                    }
+                    String where = "dictionary " + d + ", " + players + " players, node " + node;
+                    assertTrue(where, solution.bestMoveCount(node) > 0);
+                    int mover = solution.mover(depths.get(node));
+                    boolean survives = false;
+                    for (int i = trie.childCount(node) - 1; i >= 0; i--) {
+                        survives |= solution.loser(trie.nthChild(node, i)) != mover;
+                    }
+                    assertEquals(where, survives, solution.loser(solution.bestMove(node, 0)) != mover);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMinimizedTrie() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Arrays.asList("baking", "making", "taking"), StandardCharsets.UTF_8);
+        new NPlayerSolution(new Trie(file.getPath()).minimize().freeze(), 2);
+    }
+
+    private Trie randomTrie(Random random) throws IOException {
+        List<String> words = randomWords(random, 2 + random.nextInt(5), 1 + random.nextInt(400));
+        if (random.nextBoolean()) {
+            Collections.sort(words);
+        }
+        File file = folder.newFile();
+        Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+        return new Trie(file.getPath());
+    }
+
+    private static List<String> randomWords(Random random, int letters, int count) {
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            char[] word = new char[1 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(letters));
+            }
+            words.add(new String(word));
+        }
+        return words;
+    }
+
+    // the game ends on reaching node, unless it is the root
+    private static boolean isOver(SolvedTrie trie, int node) {
+        return node != trie.root()
+                && (trie.childCount(node) == 0 || !trie.hasLongWord(node) || trie.isTerminal(node));
+    }
+
+    // the depth of every node; the trie numbers every node after its parent
+    private static List<Integer> depths(SolvedTrie trie) {
+        List<Integer> depths = new ArrayList<Integer>(Collections.nCopies(trie.size(), 0));
+        for (int node = 0; node < trie.size(); node++) {
+            for (int i = trie.childCount(node) - 1; i >= 0; i--) {
+                depths.set(trie.nthChild(node, i), depths.get(node) + 1);
+            }
+        }
+        return depths;
+    }
+}
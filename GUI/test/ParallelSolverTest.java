@@ -0,0 +1,86 @@
+package ghost;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ParallelSolver against the serial solve: over random dictionaries, pools of
+ * one to six threads and thresholds small enough that nearly every subtree is
+ * forked, the parallel solve must leave the info words and goal depths of
+ * every node bit-identical to Trie.solveTrie, timed by depth or not.
+ */
+public class ParallelSolverTest {
+
+    private static final int DICTIONARIES = 200;
+    private static final int MAX_THREADS = 6;
+    private static final int[] THRESHOLDS = {1, 4, 64};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameAsSerialSolve() throws IOException {
+        Random random = new Random(3);
+        ForkJoinPool[] pools = new ForkJoinPool[MAX_THREADS];
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new ForkJoinPool(i + 1);
+        }
+        try {
+            for (int d = 0; d < DICTIONARIES; d++) {
+                List<String> words = randomWords(random, 2 + random.nextInt(5), 1 + random.nextInt(1000));
+                if (random.nextBoolean()) {
+                    Collections.sort(words);
+                }
+                File file = folder.newFile();
+                Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+                Trie trie = new Trie(file.getPath());
+                trie.unsolve();
+                trie.solveTrie(trie.root());
+                int[] info = trie.info.clone();
+                int[] depthOfUserGoal = trie.depthOfUserGoal.clone();
+                int[] depthOfCompGoal = trie.depthOfCompGoal.clone();
+
+                for (ForkJoinPool pool : pools) {
+                    for (int threshold : THRESHOLDS) {
+                        String where = "dictionary " + d + ", " + pool.getParallelism() + " threads, threshold "
+                                + threshold;
+                        trie.unsolve();
+                        long[] nanosByDepth = random.nextBoolean() ? Trie.newDepthTimes() : null;
+                        new ParallelSolver(pool, threshold).solve(trie, nanosByDepth);
+                        assertArrayEquals(where, info, trie.info);
+                        assertArrayEquals(where, depthOfUserGoal, trie.depthOfUserGoal);
+                        assertArrayEquals(where, depthOfCompGoal, trie.depthOfCompGoal);
+                    }
+                }
+            }
+        } finally {
+            for (ForkJoinPool pool : pools) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static List<String> randomWords(Random random, int letters, int count) {
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            char[] word = new char[1 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(letters));
+            }
+            words.add(new String(word));
+        }
+        return words;
+    }
+}
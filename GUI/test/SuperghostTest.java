@@ -0,0 +1,169 @@
+package ghost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Superghost against a brute-force solver that lists every substring of the
+ * words of MIN_WORD or more letters and solves them longest first by trying
+ * each letter at either end. Over small random dictionaries, some with a
+ * letter outside the Basic Multilingual Plane, every fragment, word flag, win
+ * value and set of best moves must match, and no string one letter longer
+ * than a fragment may be taken for a fragment unless it is one.
+ */
+public class SuperghostTest {
+
+    private static final int DICTIONARIES = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameAsBruteForce() throws IOException {
+        Random random = new Random(23);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            int[] alphabet = new int[2 + random.nextInt(3)];
+            for (int i = 0; i < alphabet.length; i++) {
+                alphabet[i] = 'a' + i;
+            }
+            if (random.nextBoolean()) {
+                alphabet[alphabet.length - 1] = 0x1F47B;
+            }
+            List<String> words = randomWords(random, alphabet, 1 + random.nextInt(40));
+            File file = folder.newFile();
+            Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+            Superghost game = new Superghost(file.getPath());
+            BruteForce expected = new BruteForce(words, alphabet);
+            String where = "dictionary " + d + " " + words;
+
+            assertEquals(where, expected.fragments.size(), game.fragments());
+            assertEquals(where + ", start", expected.moverWins(""), game.moverWins(""));
+            assertEquals(where + ", start", expected.bestMoves(""), new HashSet<String>(game.bestMoves("")));
+            for (String fragment : expected.fragments) {
+                String at = where + ", fragment " + fragment;
+                assertTrue(at, game.isFragment(fragment));
+                assertEquals(at, expected.words.contains(fragment), game.isWord(fragment));
+                if (!expected.words.contains(fragment)) {
+                    assertEquals(at, expected.moverWins(fragment), game.moverWins(fragment));
+                    assertEquals(at, expected.bestMoves(fragment), new HashSet<String>(game.bestMoves(fragment)));
+                }
+                for (String longer : expected.moves(fragment)) {
+                    assertEquals(at + ", " + longer, expected.fragments.contains(longer), game.isFragment(longer));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWord() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Collections.singletonList("ghost"), StandardCharsets.UTF_8);
+        new Superghost(file.getPath()).moverWins("ghost");
+    }
+
+    private static List<String> randomWords(Random random, int[] alphabet, int count) {
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            int[] word = new int[1 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            words.add(new String(word, 0, word.length));
+        }
+        return words;
+    }
+
+    // the game solved by listing its positions: the fragments, solved longest first
+    private static class BruteForce {
+
+        final Set<String> words = new HashSet<String>();
+        final Set<String> fragments = new HashSet<String>();
+        final Map<String, Boolean> wins = new HashMap<String, Boolean>();
+        final int[] alphabet;
+
+        BruteForce(List<String> dictionary, int[] alphabet) {
+            this.alphabet = alphabet;
+            for (String word : dictionary) {
+                int[] letters = word.codePoints().toArray();
+                if (letters.length >= Superghost.MIN_WORD) {
+                    words.add(word);
+                    for (int i = 0; i < letters.length; i++) {
+                        for (int j = i + 1; j <= letters.length; j++) {
+                            fragments.add(new String(letters, i, j - i));
+                        }
+                    }
+                }
+            }
+            List<String> longestFirst = new ArrayList<String>(fragments);
+            Collections.sort(longestFirst, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return b.codePointCount(0, b.length()) - a.codePointCount(0, a.length());
+                }
+            });
+            for (String fragment : longestFirst) {
+                wins.put(fragment, !winningMoves(fragment).isEmpty());
+            }
+        }
+
+        // every string one letter longer than fragment, adding the letter in front or after
+        Set<String> moves(String fragment) {
+            Set<String> moves = new HashSet<String>();
+            for (int c : alphabet) {
+                String letter = new String(Character.toChars(c));
+                moves.add(letter + fragment);
+                moves.add(fragment + letter);
+            }
+            return moves;
+        }
+
+        // the moves from fragment that leave the other player at a fragment from which it cannot win
+        Set<String> winningMoves(String fragment) {
+            Set<String> winning = new HashSet<String>();
+            for (String move : safeMoves(fragment)) {
+                if (!wins.get(move)) {
+                    winning.add(move);
+                }
+            }
+            return winning;
+        }
+
+        // the moves from fragment that do not lose on the spot
+        Set<String> safeMoves(String fragment) {
+            Set<String> safe = new HashSet<String>();
+            for (String move : moves(fragment)) {
+                if (fragments.contains(move) && !words.contains(move)) {
+                    safe.add(move);
+                }
+            }
+            return safe;
+        }
+
+        boolean moverWins(String fragment) {
+            return fragment.isEmpty() ? !winningMoves(fragment).isEmpty() : wins.get(fragment);
+        }
+
+        Set<String> bestMoves(String fragment) {
+            Set<String> winning = winningMoves(fragment);
+            return winning.isEmpty() ? safeMoves(fragment) : winning;
+        }
+    }
+}
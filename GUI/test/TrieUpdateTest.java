@@ -0,0 +1,167 @@
+package ghost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Randomized test of Trie.addWord and removeWord: after every update the
+ * localized re-solve, which stops once two nodes in a row come out as
+ * before, must leave every reachable node exactly as solving the whole trie
+ * again does, and the words of the trie, together with the words kept aside
+ * because they run through a shorter word, must be the words added and not
+ * removed since the dictionary was loaded.
+ */
+public class TrieUpdateTest {
+
+    private static final int DICTIONARIES = 300;
+    private static final int UPDATES = 60;
+    private static final int SOLUTION = Trie.COMP_GOAL | Trie.MAX_LOSING;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameAsFullResolve() throws IOException {
+        Random random = new Random(15);
+        for (int d = 0; d < DICTIONARIES; d++) {
+            int letters = 2 + random.nextInt(4);
+            List<String> words = randomWords(random, letters, 1 + random.nextInt(200));
+            if (random.nextBoolean()) {
+                Collections.sort(words);
+            }
+            File file = folder.newFile();
+            Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+            Trie trie = new Trie(file.getPath());
+            Set<String> dictionary = new HashSet<String>(words);
+            check(trie, dictionary, "dictionary " + d);
+
+            for (int u = 0; u < UPDATES; u++) {
+                List<String> known = new ArrayList<String>(dictionary);
+                String word = (random.nextBoolean() && !known.isEmpty()) ? known.get(random.nextInt(known.size()))
+                        : randomWords(random, letters, 1).get(0);
+                String where = "dictionary " + d + ", update " + u + " of " + word;
+                if (random.nextBoolean()) {
+                    boolean added = trie.addWord(word);
+                    if (!dictionary.add(word)) {
+                        assertFalse(where, added);
+                    }
+                } else {
+                    assertEquals(where, dictionary.remove(word), trie.removeWord(word));
+                }
+                check(trie, dictionary, where);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyWord() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Collections.singletonList("word"), StandardCharsets.UTF_8);
+        new Trie(file.getPath()).addWord("");
+    }
+
+    @Test
+    public void restoresWordsThroughRemovedWord() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Arrays.asList("able", "abler", "ables", "ablest", "abode"),
+                StandardCharsets.UTF_8);
+        Trie trie = new Trie(file.getPath());
+        assertFalse(trie.addWord("ablest")); // runs through "able"
+        assertTrue(trie.removeWord("able"));
+        assertFalse(trie.addWord("abler")); // back in the trie
+        assertFalse(trie.addWord("ablest")); // runs through "ables" now
+        assertTrue(trie.removeWord("ables"));
+        assertFalse(trie.addWord("ablest"));
+        assertTrue(trie.removeWord("ablest"));
+        assertTrue(trie.addWord("ablest"));
+    }
+
+    private static List<String> randomWords(Random random, int letters, int count) {
+        List<String> words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            char[] word = new char[1 + random.nextInt(7)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(letters));
+            }
+            words.add(new String(word));
+        }
+        return words;
+    }
+
+    private static void check(Trie trie, Set<String> dictionary, String where) {
+        // the reachable nodes and the words they spell
+        final List<Integer> nodes = new ArrayList<Integer>();
+        final Map<Integer, String> spelled = new HashMap<Integer, String>();
+        spelled.put(trie.root(), "");
+        List<Integer> stack = new ArrayList<Integer>();
+        stack.add(trie.root());
+        while (!stack.isEmpty()) {
+            int node = stack.remove(stack.size() - 1);
+            nodes.add(node);
+            for (int n = trie.firstChild[node]; n != Trie.NONE; n = trie.nextSibling[n]) {
+                spelled.put(n, spelled.get(node) + (char) trie.label[n]);
+                stack.add(n);
+            }
+        }
+
+        Set<String> words = new HashSet<String>();
+        for (int node : nodes) {
+            boolean isLong = (trie.info[node] & Trie.TERMINAL) != 0;
+            for (int n = trie.firstChild[node]; n != Trie.NONE; n = trie.nextSibling[n]) {
+                isLong |= (trie.info[n] & Trie.LONG) != 0;
+            }
+            assertEquals(where + ", LONG of " + spelled.get(node), isLong, (trie.info[node] & Trie.LONG) != 0);
+            if ((trie.info[node] & Trie.WORD) != 0) {
+                words.add(spelled.get(node));
+            }
+        }
+        for (int i = 0, length; i < trie.shadowedLength; i += 2 + length) {
+            length = trie.shadowed[i + 1];
+            int terminal = trie.shadowed[i];
+            assertTrue(where + ", kept aside behind a removed node", spelled.containsKey(terminal));
+            StringBuilder word = new StringBuilder(spelled.get(terminal));
+            assertTrue(where + ", kept aside behind " + word, trie.isTerminal(terminal));
+            for (int j = 0; j < length; j++) {
+                word.append((char) trie.shadowed[i + 2 + j]);
+            }
+            words.add(word.toString()); // a word listed twice in the dictionary may be kept aside twice
+        }
+        assertEquals(where, dictionary, words);
+
+        int[] info = new int[nodes.size()];
+        int[] depthOfUserGoal = new int[nodes.size()];
+        int[] depthOfCompGoal = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            info[i] = trie.info[nodes.get(i)];
+            depthOfUserGoal[i] = trie.depthOfUserGoal[nodes.get(i)];
+            depthOfCompGoal[i] = trie.depthOfCompGoal[nodes.get(i)];
+        }
+        trie.unsolve();
+        trie.solveTrie(trie.root());
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            String at = where + ", node " + spelled.get(node);
+            assertEquals(at, trie.info[node] & SOLUTION, info[i] & SOLUTION);
+            assertEquals(at, trie.depthOfUserGoal[node], depthOfUserGoal[i]);
+            assertEquals(at, trie.depthOfCompGoal[node], depthOfCompGoal[i]);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ghost;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the usual JMH command line, with the GC
+ * profiler always on so every result comes with its allocation rate (B/op).
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class);
+        String dictionary = System.getProperty("ghost.dictionary");
+        if (dictionary != null) {
+            options.jvmArgsAppend("-Dghost.dictionary=" + dictionary);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,61 @@
+package ghost;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A subsample of the dictionary (every word of WORD.LST.txt for percent =
+ * 100, evenly spaced words otherwise, still sorted) written to a temporary
+ * file, plus the solved trie built from it, its frozen copy and an engine on that. The word list is taken from the
+ * ghost.dictionary system property, or found in the working directory.
+ */
+@State(Scope.Benchmark)
+public class DictionaryState {
+
+    @Param({"10", "50", "100"})
+    public int percent;
+
+    public String file;
+    public Trie trie;
+    public SolvedTrie solved;
+    public Engine engine;
+    public int words;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> all = Files.readAllLines(dictionary().toPath(), StandardCharsets.UTF_8);
+        List<String> sample = new ArrayList<String>();
+        for (int i = 0; i < all.size(); i++) {
+            if ((long) (i + 1) * percent / 100 > (long) i * percent / 100) {
+                sample.add(all.get(i));
+            }
+        }
+        Path tmp = Files.createTempFile("ghost-" + percent + "-", ".txt");
+        tmp.toFile().deleteOnExit();
+        Files.write(tmp, sample, StandardCharsets.UTF_8);
+        file = tmp.toString();
+        words = sample.size();
+        trie = new Trie(file);
+        solved = trie.freeze();
+        engine = new Engine(solved);
+    }
+
+    static File dictionary() {
+        String property = System.getProperty("ghost.dictionary");
+        if (property != null) {
+            return new File(property);
+        }
+        for (String candidate : new String[]{"CMD/WORD.LST.txt", "../CMD/WORD.LST.txt", "WORD.LST.txt"}) {
+            if (new File(candidate).isFile()) {
+                return new File(candidate);
+            }
+        }
+        throw new IllegalStateException("WORD.LST.txt not found; run from the repository root or set -Dghost.dictionary");
+    }
+}
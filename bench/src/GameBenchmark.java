@@ -0,0 +1,30 @@
+package ghost;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// a whole simulated game, both sides playing the computer's strategy
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    private GameState state;
+
+    @Benchmark
+    public int game(DictionaryState dictionary) {
+        Engine engine = dictionary.engine;
+        if (state == null) {
+            state = engine.newGame();
+        } else {
+            engine.reset(state);
+        }
+        while (!state.isOver()) {
+            engine.apply(state, engine.bestMove(state));
+        }
+        return state.winner();
+    }
+}
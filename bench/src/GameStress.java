@@ -0,0 +1,110 @@
+package ghost;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrency stress check for a shared SolvedTrie: every thread keeps
+ * thousands of games open at once on the same trie, advancing them one move at
+ * a time in turn, both sides playing the computer's strategy. Game i is
+ * started from seed i, so each game must end exactly as it does when all games
+ * are played on one thread; any difference fails the run. Prints the bytes
+ * allocated per game next to the size of the trie they share, and games/sec and
+ * the speedup over one thread for 1..N threads.
+ *
+ * java -cp bench/target/benchmarks.jar ghost.GameStress [dictionary] [games] [open games per thread]
+ */
+public class GameStress {
+
+    public static void main(String[] args) throws Exception {
+        String dictionary = (args.length > 0) ? args[0] : DictionaryState.dictionary().getPath();
+        int games = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+        int open = (args.length > 2) ? Integer.parseInt(args[2]) : 4096;
+
+        SolvedTrie trie = new Trie(dictionary).freeze();
+        Engine engine = new Engine(trie);
+        int[] expected = new int[games];
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        play(engine, 0, games, open, expected); // warm up and record the single-threaded outcomes
+        allocated = bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        long base = 0;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(trie.size() + " nodes, " + games + " games, " + open + " open games per thread, " + cores + " cores");
+        System.out.printf("%.0f bytes allocated per game, trie %d bytes%n", (double) allocated / games, trie.heapBytes());
+        System.out.printf("%8s %12s %8s%n", "threads", "games/sec", "speedup");
+        for (int threads = 1; threads <= cores; threads = (threads == cores || threads * 2 <= cores) ? threads * 2 : cores) {
+            int[] outcomes = new int[games];
+            long nanos = run(engine, threads, games, open, outcomes);
+            if (!Arrays.equals(expected, outcomes)) {
+                throw new IllegalStateException("games played on " + threads + " threads ended differently");
+            }
+            if (threads == 1) {
+                base = nanos;
+            }
+            System.out.printf("%8d %12.0f %8.2f%n", threads, games * 1e9 / nanos, (double) base / nanos);
+        }
+    }
+
+    private static long run(final Engine engine, int threads, int games, final int open, final int[] outcomes)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                final int from = (int) ((long) games * t / threads);
+                final int to = (int) ((long) games * (t + 1) / threads);
+                futures[t] = pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        play(engine, from, to, open, outcomes);
+                        return null;
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // plays games [from, to), keeping up to open of them in progress, and records each game's final
+    // node and winner in outcomes
+    static void play(Engine engine, int from, int to, int open, int[] outcomes) {
+        GameState[] states = new GameState[open];
+        int[] ids = new int[open];
+        int next = from;
+        int live = 0;
+        for (; live < open && next < to; live++) {
+            ids[live] = next;
+            states[live] = engine.newGame(next++);
+        }
+        while (live > 0) {
+            for (int i = 0; i < live; i++) {
+                GameState state = states[i];
+                engine.apply(state, engine.bestMove(state));
+                if (state.isOver()) {
+                    outcomes[ids[i]] = state.node() * 2 + state.winner();
+                    if (next < to) {
+                        ids[i] = next;
+                        engine.reset(state, next++);
+                    } else {
+                        live--;
+                        states[i] = states[live];
+                        ids[i] = ids[live];
+                        i--;
+                    }
+                }
+            }
+        }
+    }
+}
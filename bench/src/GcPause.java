@@ -0,0 +1,90 @@
+package ghost;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares garbage collection with solved tries on the heap (SolvedTrie) and
+ * off it (OffHeapTrie). Holds a number of copies of the solved dictionary, as
+ * a server with many word lists loaded would, then reports the heap still live
+ * after a full collection, the median pause of an explicit full collection,
+ * and the collections and total pause time over a few seconds of games played
+ * on the copies while other garbage is allocated and partly retained. Run once
+ * per mode with the same heap settings and compare.
+ *
+ * java -cp bench/target/benchmarks.jar ghost.GcPause [heap|offheap] [copies] [seconds] [dictionary]
+ */
+public class GcPause {
+
+    public static void main(String[] args) throws Exception {
+        boolean offHeap = args.length > 0 && args[0].equals("offheap");
+        int copies = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        String dictionary = (args.length > 3) ? args[3] : DictionaryState.dictionary().getPath();
+
+        Trie trie = new Trie(dictionary);
+        Engine[] engines = new Engine[copies];
+        long bytes = 0;
+        for (int i = 0; i < copies; i++) {
+            SolvedTrie solved = trie.freeze();
+            if (offHeap) {
+                OffHeapTrie copy = solved.offHeap();
+                bytes += copy.offHeapBytes();
+                engines[i] = new Engine(copy);
+            } else {
+                bytes += solved.heapBytes();
+                engines[i] = new Engine(solved);
+            }
+        }
+        trie = null;
+
+        long[] pauses = new long[5];
+        for (int i = 0; i < pauses.length; i++) {
+            long start = System.nanoTime();
+            System.gc();
+            pauses[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(pauses);
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%s: %d copies, %.1f MB of tries %s%n", offHeap ? "offheap" : "heap", copies, bytes / 1e6,
+                offHeap ? "off heap" : "on heap");
+        System.out.printf("live heap after full GC %.1f MB, full GC pause median %.2f ms%n",
+                (runtime.totalMemory() - runtime.freeMemory()) / 1e6, pauses[pauses.length / 2] / 1e6);
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] counts = new long[collectors.size()];
+        long[] millis = new long[collectors.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = collectors.get(i).getCollectionCount();
+            millis[i] = collectors.get(i).getCollectionTime();
+        }
+
+        Object[] retained = new Object[1 << 16]; // a rolling window of garbage that lives long enough to be promoted
+        GameState[] states = new GameState[copies];
+        for (int i = 0; i < copies; i++) {
+            states[i] = engines[i].newGame(i);
+        }
+        long games = 0;
+        long end = System.nanoTime() + seconds * 1000000000L;
+        for (long n = 0; System.nanoTime() < end; n++) {
+            int i = (int) (n % copies);
+            Engine engine = engines[i];
+            GameState state = states[i];
+            while (!state.isOver()) {
+                engine.apply(state, engine.bestMove(state));
+            }
+            engine.reset(state, n);
+            games++;
+            retained[(int) (n & (retained.length - 1))] = new byte[256];
+        }
+
+        System.out.printf("%d games in %d s%n", games, seconds);
+        for (int i = 0; i < counts.length; i++) {
+            GarbageCollectorMXBean collector = collectors.get(i);
+            System.out.printf("%-24s %6d collections %8d ms%n", collector.getName(),
+                    collector.getCollectionCount() - counts[i], collector.getCollectionTime() - millis[i]);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ghost;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// dictionary ingestion alone, the full build (load, trim and solve) done by new Trie(...), and the time from
+// reading the dictionary to the computer's first reply, solving everything up front or lazily
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Benchmark
+    public Trie load(DictionaryState dictionary) throws IOException {
+        Trie trie = new Trie();
+        new DictionaryLoader().load(trie, dictionary.file);
+        return trie;
+    }
+
+    @Benchmark
+    public Trie build(DictionaryState dictionary) throws IOException {
+        return new Trie(dictionary.file);
+    }
+
+    @Benchmark
+    public GameState firstMove(DictionaryState dictionary) throws IOException {
+        return firstMove(new Trie(dictionary.file));
+    }
+
+    @Benchmark
+    public GameState firstMoveLazy(DictionaryState dictionary) throws IOException {
+        return firstMove(Trie.lazy(new DictionaryLoader(), dictionary.file));
+    }
+
+    private static GameState firstMove(Trie trie) {
+        Engine engine = new Engine(trie);
+        GameState state = engine.newGame();
+        engine.apply(state, 'q');
+        engine.apply(state, engine.bestMove(state));
+        return state;
+    }
+}
@@ -0,0 +1,59 @@
+package ghost;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// latency of single moves on a shared solved trie. a new game is started in the same GameState whenever one
+// ends, so in steady state neither benchmark allocates.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    private static final int GAMES = 1024;
+
+    private Engine engine;
+    private GameState state;
+    private int[][] transcripts; // moves of complete games, replayed through Engine.apply
+    private int transcript;
+    private int move;
+
+    @Setup(Level.Trial)
+    public void setUp(DictionaryState dictionary) {
+        engine = dictionary.engine;
+        state = engine.newGame();
+        transcripts = new int[GAMES][];
+        for (int i = 0; i < GAMES; i++) {
+            GameState s = engine.newGame();
+            while (!s.isOver()) {
+                engine.apply(s, engine.bestMove(s));
+            }
+            transcripts[i] = s.word().codePoints().toArray();
+        }
+    }
+
+    @Benchmark
+    public int compMove() {
+        if (state.isOver()) {
+            engine.reset(state);
+        }
+        engine.apply(state, engine.bestMove(state));
+        return state.node();
+    }
+
+    @Benchmark
+    public int move() {
+        int[] moves = transcripts[transcript];
+        if (move == moves.length) {
+            transcript = (transcript + 1) % GAMES;
+            move = 0;
+            moves = transcripts[transcript];
+            engine.reset(state);
+        }
+        engine.apply(state, moves[move++]);
+        return state.node();
+    }
+}
@@ -0,0 +1,200 @@
+package ghost;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load generator for GameServer: opens a number of sessions, each on its own
+ * (virtual, where available) thread, holds them for the whole run and plays
+ * games on them back to back as fast as the server answers. The user's
+ * letters are drawn by Strategy.RANDOM from a local copy of each game, and
+ * every reply is checked against the rules played out on that copy. Prints the
+ * sessions held and moves/sec every second, then the round-trip latency of a
+ * move at p50, p99 and p99.9.
+ *
+ * Without a port, a server is started in-process on a free loopback port.
+ *
+ * java -cp bench/target/benchmarks.jar ghost.ServerLoad [dictionary] [sessions] [seconds] [port]
+ */
+public class ServerLoad {
+
+    private static final int MAX_MICROS = 1 << 16; // slower moves are counted in the last bucket
+
+    private final Engine engine;
+    private final int port;
+    private final AtomicInteger held = new AtomicInteger();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLongArray micros = new AtomicLongArray(MAX_MICROS);
+    private volatile boolean running = true;
+
+    ServerLoad(Engine engine, int port) {
+        this.engine = engine;
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String dictionary = (args.length > 0) ? args[0] : DictionaryState.dictionary().getPath();
+        int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+        DictionaryRegistry registry = new DictionaryRegistry(Runtime.getRuntime().maxMemory() / 2);
+        GameServer server = null;
+        int port;
+        if (args.length > 3) {
+            port = Integer.parseInt(args[3]);
+        } else {
+            server = new GameServer(registry, 0, sessions, 60000, dictionary);
+            port = server.port();
+        }
+        ServerLoad load = new ServerLoad(new Engine(registry.get(dictionary)), port);
+        System.out.println(sessions + " sessions for " + seconds + " s against port " + port);
+        load.run(sessions, seconds);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    void run(int sessions, int seconds) throws InterruptedException {
+        ExecutorService pool = GameServer.newSessionExecutor("Ghost load");
+        for (int i = 0; i < sessions; i++) {
+            final long seed = (long) i << 32;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        session(seed);
+                    } catch (IOException x) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        // measure from here on, once every session has been started
+        for (int i = 0; i < MAX_MICROS; i++) {
+            micros.set(i, 0);
+        }
+        long start = System.nanoTime();
+        long first = moves.get();
+        long last = start;
+        long lastMoves = first;
+        for (int s = 0; s < seconds; s++) {
+            TimeUnit.SECONDS.sleep(1);
+            long now = System.nanoTime();
+            long done = moves.get();
+            System.out.printf("%6d sessions held %10.0f moves/sec%n", held.get(), (done - lastMoves) * 1e9 / (now - last));
+            last = now;
+            lastMoves = done;
+        }
+        running = false;
+        long nanos = last - start;
+        long measured = lastMoves - first;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%d moves in %.1f s, %.0f moves/sec, latency p50 %d us, p99 %d us, p99.9 %d us, %d errors%n",
+                measured, nanos / 1e9, measured * 1e9 / nanos, percentile(50), percentile(99), percentile(99.9),
+                errors.get());
+    }
+
+    // plays games on one connection until the run is over
+    private void session(long seed) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 256);
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 256);
+            expect("GHOST", in.readLine());
+            held.incrementAndGet();
+            GameState local = engine.newGame(seed);
+            while (running) {
+                engine.reset(local, seed);
+                out.write("NEW " + seed++ + "\n");
+                out.flush();
+                expect("OK", in.readLine());
+                while (!local.isOver() && running) {
+                    int letter = Strategy.RANDOM.move(engine, local);
+                    long start = System.nanoTime();
+                    out.write("PLAY " + new String(Character.toChars(letter)) + "\n");
+                    out.flush();
+                    String reply = in.readLine();
+                    record(System.nanoTime() - start);
+                    check(local, letter, reply);
+                }
+            }
+            out.write("QUIT\n");
+            out.flush();
+            expect("BYE", in.readLine());
+        } finally {
+            held.decrementAndGet();
+            socket.close();
+        }
+    }
+
+    // plays letter and the server's answer to it on local and counts an error if reply does not match
+    private void check(GameState local, int letter, String reply) throws IOException {
+        if (reply == null) {
+            throw new IOException("server closed the session");
+        }
+        int status = engine.apply(local, letter);
+        boolean ok;
+        if (reply.startsWith("LOST ")) {
+            ok = status == Integer.parseInt(reply.substring(5));
+        } else if (status != GameState.PLAYING || reply.length() < 6) {
+            ok = false;
+        } else if (reply.startsWith("MOVE ")) {
+            ok = engine.apply(local, reply.codePointAt(5)) == GameState.PLAYING;
+        } else if (reply.startsWith("WON ")) {
+            int move = reply.codePointAt(4);
+            ok = engine.apply(local, move) == Integer.parseInt(reply.substring(5 + Character.charCount(move)));
+        } else {
+            ok = false;
+        }
+        if (!ok) {
+            errors.incrementAndGet();
+            if (!local.isOver()) {
+                local.lose(GameState.INVALID_WORD); // start over with the next game
+            }
+        }
+    }
+
+    private void expect(String expected, String reply) throws IOException {
+        if (!expected.equals(reply)) {
+            throw new IOException("expected " + expected + ", got " + reply);
+        }
+    }
+
+    private void record(long nanos) {
+        micros.incrementAndGet((int) Math.min(nanos / 1000, MAX_MICROS - 1));
+        moves.incrementAndGet();
+    }
+
+    private long percentile(double p) {
+        long total = 0;
+        for (int i = 0; i < MAX_MICROS; i++) {
+            total += micros.get(i);
+        }
+        long rank = (long) Math.ceil(total * p / 100);
+        long seen = 0;
+        for (int i = 0; i < MAX_MICROS; i++) {
+            seen += micros.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,38 @@
+package ghost;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// full solve of an already built trie, serially and on the common ForkJoinPool
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolveBenchmark {
+
+    private Trie trie;
+
+    @Setup(Level.Trial)
+    public void setUp(DictionaryState dictionary) {
+        trie = dictionary.trie;
+    }
+
+    @Setup(Level.Invocation)
+    public void unsolve() {
+        trie.unsolve();
+    }
+
+    @Benchmark
+    public Trie serial() {
+        trie.solveTrie(trie.root());
+        return trie;
+    }
+
+    @Benchmark
+    public Trie parallel() {
+        new ParallelSolver().solve(trie);
+        return trie;
+    }
+}